@@ -0,0 +1,156 @@
+package com.inventario.UsuariosService.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo hasta el primer /login correcto: lanza el jar empaquetado en otro proceso, con los mismos
+ * flags que el contenedor, y reintenta el login hasta obtener 200. Repite la medición, toma la mediana
+ * y termina con código 1 si supera max-ms, para poder usarlo como control de regresión.
+ * <p>
+ * Con h2=&lt;jar de H2&gt; arranca cada vez sobre una H2 en memoria (modo MySQL, con las migraciones de
+ * Flyway) y crea el usuario con /first; así se ejecuta en la fase verify del perfil aot sin nada externo
+ * (mvn -Paot verify, saltable con -Dexec.skip). Sin h2 usa la base de datos de la configuración normal,
+ * que debe tener el usuario de las credenciales indicadas:
+ * <pre>
+ * mvn -Paot package -DskipTests
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.inventario.UsuariosService.benchmark.ArranqueLogin \
+ *     -Djmh.args="max-ms=15000 contrasena=... jvm=-XX:SharedArchiveFile=app.jsa"
+ * </pre>
+ * Argumentos (clave=valor): jar, jvm (flags separados por espacios o comas), h2, url, correo, contrasena,
+ * repeticiones, max-ms.
+ * <p>
+ * Es un único fichero sin dependencias para poder lanzarlo como código fuente (java ArranqueLogin.java).
+ */
+public final class ArranqueLogin {
+
+    private static final long INTERVALO_MILLIS = 50;
+
+    private ArranqueLogin() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            String[] partes = arg.split("=", 2);
+            opciones.put(partes[0], partes.length > 1 ? partes[1] : "");
+        }
+        String jar = opciones.getOrDefault("jar", "target/UsuariosService-0.0.1-SNAPSHOT.jar");
+        String jvm = opciones.getOrDefault("jvm", "-Dspring.aot.enabled=true -Dspring.profiles.active=rapido");
+        String h2 = opciones.getOrDefault("h2", "");
+        String url = opciones.getOrDefault("url", "http://localhost:8083/api/usuarios/login");
+        String correo = opciones.getOrDefault("correo", "admin@admin.com");
+        String contrasena = opciones.getOrDefault("contrasena", "admin");
+        int repeticiones = Integer.parseInt(opciones.getOrDefault("repeticiones", "3"));
+        long maxMillis = Long.parseLong(opciones.getOrDefault("max-ms", "20000"));
+
+        if (!new File(jar).isFile()) {
+            System.err.println("No existe " + jar + "; ejecuta antes mvn -Paot package -DskipTests");
+            System.exit(2);
+        }
+        List<String> comando = new ArrayList<>();
+        comando.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        Arrays.stream(jvm.split("[ ,]+")).filter(f -> !f.isBlank()).forEach(comando::add);
+        if (h2.isBlank()) {
+            comando.add("-jar");
+            comando.add(jar);
+        } else {
+            if (!new File(h2).isFile()) {
+                System.err.println("No existe el jar de H2 " + h2);
+                System.exit(2);
+            }
+            // PropertiesLauncher carga el mismo jar y añade el driver de H2, que no va empaquetado
+            comando.add("-Dloader.path=" + h2);
+            comando.add("-Dspring.datasource.url=jdbc:h2:mem:arranque;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE");
+            comando.add("-Dspring.datasource.driver-class-name=org.h2.Driver");
+            comando.add("-Dspring.datasource.username=sa");
+            comando.add("-Dspring.datasource.password=");
+            comando.add("-cp");
+            comando.add(jar);
+            comando.add("org.springframework.boot.loader.launch.PropertiesLauncher");
+        }
+
+        HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+        HttpRequest login = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"correo\":\"" + correo + "\",\"contrasena\":\"" + contrasena + "\"}"))
+                .build();
+        HttpRequest primerUsuario = h2.isBlank() ? null : HttpRequest.newBuilder(URI.create(url.replace("/login", "/first")))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"nombre\":\"Administrador\",\"correo\":\"" + correo
+                        + "\",\"contrasena\":\"" + contrasena + "\"}"))
+                .build();
+
+        long[] tiempos = new long[repeticiones];
+        for (int i = 0; i < repeticiones; i++) {
+            tiempos[i] = medir(comando, cliente, login, primerUsuario, maxMillis * 3);
+            System.out.printf("Arranque %d: %d ms hasta el primer login%n", i + 1, tiempos[i]);
+        }
+        Arrays.sort(tiempos);
+        long mediana = tiempos[repeticiones / 2];
+        System.out.printf("Mediana: %d ms (máximo permitido %d ms)%n", mediana, maxMillis);
+        if (mediana > maxMillis) {
+            System.err.println("Regresión de arranque: la mediana supera max-ms");
+            System.exit(1);
+        }
+    }
+
+    // primerUsuario (solo con H2) crea el usuario la primera vez que el login responde 401
+    private static long medir(List<String> comando, HttpClient cliente, HttpRequest login, HttpRequest primerUsuario,
+                              long limiteMillis) throws IOException, InterruptedException {
+        long inicio = System.nanoTime();
+        Process proceso = new ProcessBuilder(comando)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (true) {
+                long transcurrido = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+                if (!proceso.isAlive()) {
+                    throw new IllegalStateException("El servicio terminó con código " + proceso.exitValue());
+                }
+                if (transcurrido > limiteMillis) {
+                    throw new IllegalStateException("Sin login correcto tras " + transcurrido + " ms");
+                }
+                try {
+                    int estado = cliente.send(login, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    if (estado == 200) {
+                        return transcurrido;
+                    }
+                    if (estado == 401 && primerUsuario != null) {
+                        int creado = cliente.send(primerUsuario, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (creado != 200) {
+                            throw new IllegalStateException("No se pudo crear el usuario con /first: " + creado);
+                        }
+                        primerUsuario = null;
+                        continue;
+                    }
+                    if (estado == 401) {
+                        throw new IllegalStateException("Credenciales rechazadas: revisa correo/contrasena");
+                    }
+                } catch (ConnectException e) {
+                    // Aún no escucha
+                }
+                Thread.sleep(INTERVALO_MILLIS);
+            }
+        } finally {
+            proceso.destroy();
+            if (!proceso.waitFor(10, TimeUnit.SECONDS)) {
+                proceso.destroyForcibly().waitFor();
+            }
+        }
+    }
+}
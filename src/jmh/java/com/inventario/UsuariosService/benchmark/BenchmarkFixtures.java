@@ -0,0 +1,162 @@
+package com.inventario.UsuariosService.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.UsuariosService.controller.UsuarioController;
+import com.inventario.UsuariosService.dto.CambioUsuario;
+import com.inventario.UsuariosService.entity.Usuario;
+import com.inventario.UsuariosService.repository.RefreshTokenRepository;
+import com.inventario.UsuariosService.repository.RevocacionTokenRepository;
+import com.inventario.UsuariosService.repository.UsuarioRepository;
+import com.inventario.UsuariosService.service.AuditoriaService;
+import com.inventario.UsuariosService.service.BusquedaUsuariosIndex;
+import com.inventario.UsuariosService.service.CambiosUsuarioService;
+import com.inventario.UsuariosService.service.CorreosActivosIndex;
+import com.inventario.UsuariosService.service.EscriturasRecientes;
+import com.inventario.UsuariosService.service.FallosLoginRegistro;
+import com.inventario.UsuariosService.service.LimitadorLogin;
+import com.inventario.UsuariosService.service.PasswordHashingService;
+import com.inventario.UsuariosService.service.ProyeccionInternaCache;
+import com.inventario.UsuariosService.service.RefreshTokenService;
+import com.inventario.UsuariosService.service.RevocacionTokenService;
+import com.inventario.UsuariosService.service.UsuarioCache;
+import com.inventario.UsuariosService.service.UsuarioImportService;
+import com.inventario.UsuariosService.service.UsuarioService;
+import com.inventario.UsuariosService.util.JwtKeyProvider;
+import com.inventario.UsuariosService.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Construye los componentes reales del servicio sin contexto Spring ni base de datos.
+ */
+final class BenchmarkFixtures {
+
+    static final String CONTRASENA = "admin1234";
+    static final String SECRET_JWT = "clave_de_benchmark_suficientemente_larga_para_hs512_que_necesita_64_bytes_o_mas";
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtUtil jwtUtil(MeterRegistry registry) {
+        JwtKeyProvider keyProvider = new JwtKeyProvider("HS512", SECRET_JWT, "", "", "", "");
+        return new JwtUtil(keyProvider, registry, 3600, 10_000);
+    }
+
+    static Entorno entorno() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+        Map<String, Usuario> usuarios = new ConcurrentHashMap<>();
+        usuarios.put("admin@admin.com", new Usuario(1L, "Administrador", "admin@admin.com", "ADMIN",
+                encoder.encode(CONTRASENA), LocalDateTime.now(), true, LocalDateTime.now()));
+
+        UsuarioRepository repository = repositorioEnMemoria(usuarios);
+        CambiosUsuarioService cambios = cambiosVacios();
+        CorreosActivosIndex index = new CorreosActivosIndex(repository, cambios, registry);
+        index.recargar();
+        RevocacionTokenService revocaciones = revocaciones(registry);
+        RefreshTokenService refreshTokens = refreshTokens(registry);
+        // Sin iniciar el escritor: se mide solo la publicación en el anillo, que descarta al llenarse
+        AuditoriaService auditoria = new AuditoriaService(null, registry, 8192, 500, 200);
+        ObjectMapper objectMapper = new ObjectMapper();
+        UsuarioService usuarioService = new UsuarioService(repository, index,
+                new UsuarioCache(registry, 10_000, 60), new ProyeccionInternaCache(objectMapper, registry, 10_000, 60),
+                revocaciones, refreshTokens, auditoria, new EscriturasRecientes(2_000),
+                cambios, busqueda(repository, cambios, registry), null);
+        PasswordHashingService hashing = new PasswordHashingService(encoder, registry, 0, 64, 5_000, 1, 0, 16);
+        UsuarioImportService importService =
+                new UsuarioImportService(repository, hashing, index, new EscriturasRecientes(2_000), null, auditoria,
+                        null, null, objectMapper, 500);
+        UsuarioController controller = new UsuarioController(usuarioService, jwtUtil(registry), hashing,
+                importService, revocaciones, refreshTokens, auditoria, new FallosLoginRegistro(registry, 900, 10_000, 0),
+                // Límites altos: el benchmark repite el login desde la misma IP y correo
+                new LimitadorLogin(registry, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 10_000),
+                objectMapper, registry, 500);
+        return new Entorno(controller, hashing);
+    }
+
+    // Registro de cambios sin tabla: versión 0 y nada nuevo
+    static CambiosUsuarioService cambiosVacios() {
+        return new CambiosUsuarioService(null, 0) {
+            @Override
+            public long versionActual() {
+                return 0;
+            }
+
+            @Override
+            public List<CambioUsuario> listar(long desde, int limite) {
+                return List.of();
+            }
+        };
+    }
+
+    // Índice sin cargar desde la base de datos: BusquedaBenchmark lo llena con cargar()
+    static BusquedaUsuariosIndex busqueda(UsuarioRepository repository, CambiosUsuarioService cambios,
+                                          MeterRegistry registry) {
+        return new BusquedaUsuariosIndex(repository, cambios, null, registry, true, Integer.MAX_VALUE, 50_000);
+    }
+
+    // Revocaciones sin tabla: nada revocado, las escrituras se descartan
+    static RevocacionTokenService revocaciones(MeterRegistry registry) {
+        RevocacionTokenRepository repository = (RevocacionTokenRepository) Proxy.newProxyInstance(
+                RevocacionTokenRepository.class.getClassLoader(), new Class<?>[]{RevocacionTokenRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> args[0];
+                    case "findByExpiraEnGreaterThan" -> List.of();
+                    case "deleteExpiradas" -> 0;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "RevocacionTokenRepository(en memoria)";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        return new RevocacionTokenService(repository, registry, 3600, 10_000, 30_000);
+    }
+
+    // Refresh tokens sin tabla: las escrituras se descartan
+    static RefreshTokenService refreshTokens(MeterRegistry registry) {
+        RefreshTokenRepository repository = (RefreshTokenRepository) Proxy.newProxyInstance(
+                RefreshTokenRepository.class.getClassLoader(), new Class<?>[]{RefreshTokenRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> args[0];
+                    case "insertar" -> null;
+                    case "findById" -> Optional.empty();
+                    case "marcarUsado", "deleteByFamilia", "deleteByUsuarioId", "deleteExpirados" -> 0;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "RefreshTokenRepository(en memoria)";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        return new RefreshTokenService(repository, registry, 1_209_600, 10_000);
+    }
+
+    // Solo implementa las consultas que usa el camino de login
+    private static UsuarioRepository repositorioEnMemoria(Map<String, Usuario> usuarios) {
+        return (UsuarioRepository) Proxy.newProxyInstance(UsuarioRepository.class.getClassLoader(),
+                new Class<?>[]{UsuarioRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByCorreoAndActivoTrue" -> Optional.ofNullable(usuarios.get((String) args[0]))
+                            .filter(Usuario::getActivo);
+                    case "findById" -> usuarios.values().stream()
+                            .filter(u -> u.getId().equals(args[0])).findFirst();
+                    case "findCorreosActivos" -> usuarios.values().stream()
+                            .filter(Usuario::getActivo).map(Usuario::getCorreo).toList();
+                    case "findAll" -> List.copyOf(usuarios.values());
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "UsuarioRepository(en memoria)";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    record Entorno(UsuarioController controller, PasswordHashingService hashing) {
+        void cerrar() {
+            hashing.shutdown();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.inventario.UsuariosService.benchmark;
+
+import com.inventario.UsuariosService.dto.UsuarioResumen;
+import com.inventario.UsuariosService.entity.Usuario;
+import com.inventario.UsuariosService.service.BusquedaUsuariosIndex;
+import com.inventario.UsuariosService.service.CambiosUsuarioService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda en BusquedaUsuariosIndex con un millón de usuarios sintéticos: consultas selectivas,
+ * prefijos frecuentes, fragmentos que aparecen en casi todos (dominio), consultas cortas que no
+ * usan trigramas y filtros por rol. "actualizar" mide el coste de mantener el índice en una escritura.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class BusquedaBenchmark {
+
+    private static final String[] NOMBRES = {"María", "José", "Lucía", "Juan", "Carmen", "Antonio", "Ana",
+            "Manuel", "Laura", "Francisco", "Marta", "David", "Sofía", "Javier", "Elena", "Pablo"};
+    private static final String[] APELLIDOS = {"García", "Rodríguez", "González", "Fernández", "López",
+            "Martínez", "Sánchez", "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz",
+            "Moreno", "Muñoz", "Álvarez", "Romero", "Alonso", "Gutiérrez"};
+    private static final String[] DOMINIOS = {"empresa.com", "correo.es", "inventario.net", "mail.org"};
+    private static final String[] ROLES = {"USER", "USER", "USER", "ADMIN"};
+
+    @Param("1000000")
+    public int usuarios;
+
+    @Param({"francisco.ruiz12345", "gonz", "inventario", "ma", "xyzzy"})
+    public String consulta;
+
+    private BusquedaUsuariosIndex indice;
+    private long siguienteId;
+
+    @Setup
+    public void setup() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        indice = BenchmarkFixtures.busqueda(null, new CambiosUsuarioService(null, 0), registry);
+        indice.cargar(generar(usuarios), 0);
+        siguienteId = 1;
+    }
+
+    @Benchmark
+    public BusquedaUsuariosIndex.Resultado buscar() {
+        return indice.buscar(consulta, null, null, 20);
+    }
+
+    @Benchmark
+    public BusquedaUsuariosIndex.Resultado buscarAdminsActivos() {
+        return indice.buscar(consulta, "ADMIN", true, 20);
+    }
+
+    // Renombra usuarios existentes por turnos: cambian parte de sus trigramas
+    @Benchmark
+    public void actualizar() {
+        long id = siguienteId++ % usuarios + 1;
+        indice.actualizar(new Usuario(id, "Renombrado " + id, "renombrado" + id + "@empresa.com", "USER",
+                "x", LocalDateTime.now(), true, LocalDateTime.now()));
+    }
+
+    @Setup(Level.Iteration)
+    public void reiniciarTurno() {
+        siguienteId = 1;
+    }
+
+    private static Iterator<UsuarioResumen> generar(int total) {
+        LocalDateTime fecha = LocalDateTime.now();
+        return new Iterator<>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < total;
+            }
+
+            @Override
+            public UsuarioResumen next() {
+                int n = i++;
+                String nombre = NOMBRES[n % NOMBRES.length];
+                String apellido = APELLIDOS[(n / NOMBRES.length) % APELLIDOS.length];
+                String correo = Normalizer.normalize(nombre + "." + apellido, Normalizer.Form.NFD)
+                        .replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT)
+                        + n + "@" + DOMINIOS[n % DOMINIOS.length];
+                return new UsuarioResumen((long) n + 1, nombre + " " + apellido, correo, ROLES[n % ROLES.length],
+                        fecha, n % 10 != 0);
+            }
+        };
+    }
+}
@@ -0,0 +1,220 @@
+package com.inventario.UsuariosService.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prueba de carga que compara hilos de plataforma y virtuales: lanza el jar una vez por modo (sin
+ * perfil y con el perfil "virtual"), hace login, y durante duracion-s mantiene "concurrencia" clientes
+ * pidiendo la ruta con el token. Informa del rendimiento (peticiones correctas por segundo), el p50,
+ * el p99 y los errores de cada modo.
+ * <p>
+ * El modo virtual necesita el jar compilado con -Pvirtual y ejecutarse sobre Java 21, además de la base
+ * de datos de la configuración normal con el usuario de las credenciales indicadas:
+ * <pre>
+ * mvn -Pvirtual package -DskipTests
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.inventario.UsuariosService.benchmark.CargaHilosVirtuales \
+ *     -Djmh.args="contrasena=... concurrencia=400 duracion-s=30"
+ * </pre>
+ * Argumentos (clave=valor): jar (vacío = medir el servicio ya arrancado en url, un solo modo), jvm,
+ * modos (plataforma,virtual), url (base), ruta, correo, contrasena, concurrencia, duracion-s,
+ * calentamiento-s.
+ */
+public final class CargaHilosVirtuales {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private CargaHilosVirtuales() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            String[] partes = arg.split("=", 2);
+            opciones.put(partes[0], partes.length > 1 ? partes[1] : "");
+        }
+        String jar = opciones.getOrDefault("jar", "target/UsuariosService-0.0.1-SNAPSHOT.jar");
+        String jvm = opciones.getOrDefault("jvm", "");
+        String modos = opciones.getOrDefault("modos", "plataforma,virtual");
+        String url = opciones.getOrDefault("url", "http://localhost:8083");
+        String ruta = opciones.getOrDefault("ruta", "/api/usuarios/correo/admin@admin.com");
+        String correo = opciones.getOrDefault("correo", "admin@admin.com");
+        String contrasena = opciones.getOrDefault("contrasena", "admin");
+        int concurrencia = Integer.parseInt(opciones.getOrDefault("concurrencia", "200"));
+        int duracion = Integer.parseInt(opciones.getOrDefault("duracion-s", "20"));
+        int calentamiento = Integer.parseInt(opciones.getOrDefault("calentamiento-s", "5"));
+
+        HttpClient cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(500))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+        HttpRequest login = HttpRequest.newBuilder(URI.create(url + "/api/usuarios/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"correo\":\"" + correo + "\",\"contrasena\":\"" + contrasena + "\"}"))
+                .build();
+
+        if (jar.isBlank()) {
+            Resultado r = medir(cliente, login, url + ruta, concurrencia, calentamiento, duracion);
+            System.out.println("servicio en " + url + ": " + r);
+            System.exit(0);
+        }
+        if (!new File(jar).isFile()) {
+            System.err.println("No existe " + jar + "; ejecuta antes mvn -Pvirtual package -DskipTests");
+            System.exit(2);
+        }
+        List<String> resumen = new ArrayList<>();
+        for (String modo : modos.split(",")) {
+            List<String> comando = new ArrayList<>();
+            comando.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+            Arrays.stream(jvm.split("[ ,]+")).filter(f -> !f.isBlank()).forEach(comando::add);
+            if (modo.equals("virtual")) {
+                comando.add("-Dspring.profiles.active=virtual");
+            }
+            comando.add("-jar");
+            comando.add(jar);
+            Process proceso = new ProcessBuilder(comando)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            try {
+                esperarArranque(proceso, cliente, login);
+                Resultado r = medir(cliente, login, url + ruta, concurrencia, calentamiento, duracion);
+                resumen.add(modo + ": " + r);
+                System.out.println(modo + ": " + r);
+            } finally {
+                proceso.destroy();
+                if (!proceso.waitFor(10, TimeUnit.SECONDS)) {
+                    proceso.destroyForcibly().waitFor();
+                }
+            }
+        }
+        System.out.println("Resumen (" + concurrencia + " clientes, " + duracion + " s, " + ruta + ")");
+        resumen.forEach(System.out::println);
+        System.exit(0);
+    }
+
+    private static void esperarArranque(Process proceso, HttpClient cliente, HttpRequest login)
+            throws IOException, InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (System.nanoTime() < limite) {
+            if (!proceso.isAlive()) {
+                throw new IllegalStateException("El servicio terminó con código " + proceso.exitValue());
+            }
+            try {
+                if (cliente.send(login, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Aún no escucha
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("El servicio no respondió al login en 120 s");
+    }
+
+    private static Resultado medir(HttpClient cliente, HttpRequest login, String url, int concurrencia,
+                                   int calentamiento, int duracion) throws Exception {
+        HttpResponse<String> respuesta = cliente.send(login, HttpResponse.BodyHandlers.ofString());
+        Matcher m = TOKEN.matcher(respuesta.body());
+        if (respuesta.statusCode() != 200 || !m.find()) {
+            throw new IllegalStateException("Login fallido: " + respuesta.statusCode());
+        }
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + m.group(1))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+
+        long inicioMedicion = System.nanoTime() + TimeUnit.SECONDS.toNanos(calentamiento);
+        long fin = inicioMedicion + TimeUnit.SECONDS.toNanos(duracion);
+        ExecutorService clientes = Executors.newFixedThreadPool(concurrencia);
+        List<Future<Muestras>> futuros = new ArrayList<>();
+        for (int i = 0; i < concurrencia; i++) {
+            futuros.add(clientes.submit(() -> {
+                Muestras muestras = new Muestras();
+                while (System.nanoTime() < fin) {
+                    long t0 = System.nanoTime();
+                    boolean correcta;
+                    try {
+                        correcta = cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                    } catch (IOException e) {
+                        correcta = false;
+                    }
+                    if (t0 >= inicioMedicion) {
+                        muestras.anadir(System.nanoTime() - t0, correcta);
+                    }
+                }
+                return muestras;
+            }));
+        }
+        Muestras total = new Muestras();
+        for (Future<Muestras> futuro : futuros) {
+            total.unir(futuro.get());
+        }
+        clientes.shutdown();
+        return total.resultado(duracion);
+    }
+
+    private record Resultado(double porSegundo, double p50Millis, double p99Millis, long errores) {
+        @Override
+        public String toString() {
+            return String.format("%.0f peticiones/s, p50 %.1f ms, p99 %.1f ms, %d errores",
+                    porSegundo, p50Millis, p99Millis, errores);
+        }
+    }
+
+    private static final class Muestras {
+        private long[] latencias = new long[1024];
+        private int tamano;
+        private long errores;
+
+        void anadir(long nanos, boolean correcta) {
+            if (!correcta) {
+                errores++;
+                return;
+            }
+            if (tamano == latencias.length) {
+                latencias = Arrays.copyOf(latencias, tamano * 2);
+            }
+            latencias[tamano++] = nanos;
+        }
+
+        void unir(Muestras otras) {
+            for (int i = 0; i < otras.tamano; i++) {
+                anadir(otras.latencias[i], true);
+            }
+            errores += otras.errores;
+        }
+
+        Resultado resultado(int duracion) {
+            long[] ordenadas = Arrays.copyOf(latencias, tamano);
+            Arrays.sort(ordenadas);
+            return new Resultado((double) tamano / duracion, percentil(ordenadas, 0.50), percentil(ordenadas, 0.99),
+                    errores);
+        }
+
+        private static double percentil(long[] ordenadas, double p) {
+            if (ordenadas.length == 0) {
+                return Double.NaN;
+            }
+            return ordenadas[(int) Math.min(ordenadas.length - 1, Math.floor(p * ordenadas.length))] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.inventario.UsuariosService.benchmark;
+
+import com.inventario.UsuariosService.util.JwtClaims;
+import com.inventario.UsuariosService.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de emitir y verificar tokens: verificación en frío (parseo y firma completos)
+ * frente a la vista de claims cacheada de JwtUtil.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = BenchmarkFixtures.jwtUtil(new SimpleMeterRegistry());
+        token = jwtUtil.generateToken("admin@admin.com", "Administrador", "ADMIN");
+        jwtUtil.extractClaims(token);
+    }
+
+    @Benchmark
+    public String mintToken() {
+        return jwtUtil.generateToken("admin@admin.com", "Administrador", "ADMIN");
+    }
+
+    @Benchmark
+    public String verifyCold() {
+        return jwtUtil.extractClaim(token, Claims::getSubject);
+    }
+
+    @Benchmark
+    public JwtClaims verifyCached() {
+        return jwtUtil.extractClaims(token);
+    }
+}
@@ -0,0 +1,75 @@
+package com.inventario.UsuariosService.benchmark;
+
+import com.inventario.UsuariosService.filter.JwtRequestFilter;
+import com.inventario.UsuariosService.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecución completa de JwtRequestFilter sobre una petición simulada con un token válido y sobre una
+ * ruta pública con cabecera Bearer. Las peticiones se crean una vez por hilo para que gc.alloc.rate.norm
+ * (-prof gc) mida solo lo que asigna el filtro; con -t N se mide bajo carga concurrente.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtRequestFilterBenchmark {
+
+    private static final FilterChain CADENA = (request, response) -> {
+    };
+
+    private JwtRequestFilter filter;
+    private MockHttpServletRequest protegida;
+    private MockHttpServletRequest publica;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JwtUtil jwtUtil = BenchmarkFixtures.jwtUtil(registry);
+        filter = new JwtRequestFilter(jwtUtil, BenchmarkFixtures.revocaciones(registry), registry);
+        String authorization = "Bearer " + jwtUtil.generateToken("admin@admin.com", "Administrador", "ADMIN");
+        protegida = new MockHttpServletRequest("GET", "/api/usuarios/1");
+        protegida.addHeader("Authorization", authorization);
+        publica = new MockHttpServletRequest("POST", "/api/usuarios/login");
+        publica.addHeader("Authorization", authorization);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        return filtrar(protegida);
+    }
+
+    @Benchmark
+    public Object doFilterRutaPublica() throws Exception {
+        return filtrar(publica);
+    }
+
+    private Object filtrar(MockHttpServletRequest request) throws Exception {
+        try {
+            filter.doFilter(request, response, CADENA);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.inventario.UsuariosService.benchmark;
+
+import com.inventario.UsuariosService.controller.UsuarioController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login de extremo a extremo (búsqueda, BCrypt en el pool de hashing y emisión del token)
+ * contra un repositorio en memoria, sin base de datos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class LoginBenchmark {
+
+    private BenchmarkFixtures.Entorno entorno;
+    private UsuarioController controller;
+    private final MockHttpServletRequest peticion = new MockHttpServletRequest();
+
+    @Setup
+    public void setup() {
+        entorno = BenchmarkFixtures.entorno();
+        controller = entorno.controller();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entorno.cerrar();
+    }
+
+    @Benchmark
+    public ResponseEntity<?> loginCorrecto() {
+        return controller.login(Map.of("correo", "admin@admin.com", "contrasena", BenchmarkFixtures.CONTRASENA), peticion);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> loginCorreoDesconocido() {
+        return controller.login(Map.of("correo", "nadie@admin.com", "contrasena", BenchmarkFixtures.CONTRASENA), peticion);
+    }
+}
@@ -3,8 +3,10 @@ package com.inventario.UsuariosService;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class UsuariosServiceApplication {
 
     // Comentado para usar el endpoint /first para crear el primer usuario
@@ -1,5 +1,6 @@
 package com.inventario.UsuariosService.config;
 
+import com.inventario.UsuariosService.service.EscriturasRecientes;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -12,8 +13,9 @@ public class CorsConfig implements WebMvcConfigurer {
         registry.addMapping("/**")
                 .allowedOriginPatterns("*")
                 .allowedOrigins("http://localhost:*", "http://127.0.0.1:*", "https://localhost:*")
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD")
+                .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "HEAD")
                 .allowedHeaders("*")
+                .exposedHeaders(EscriturasRecientes.CABECERA)
                 .allowCredentials(false)
                 .maxAge(3600);
     }
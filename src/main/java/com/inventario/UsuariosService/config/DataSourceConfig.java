@@ -0,0 +1,81 @@
+package com.inventario.UsuariosService.config;
+
+import com.inventario.UsuariosService.service.EscriturasRecientes;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de lectura según usuarios.datasource.replica-urls. El enrutador se registra siempre y la
+ * lista se lee al arrancar, no en una condición de bean: con el jar procesado por AOT (-Paot) las
+ * condiciones quedan fijadas al compilar y la variable de entorno dejaría de tener efecto. Sin
+ * réplicas todas las conexiones salen del primario.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    // Mismo pool que crearía Spring Boot, con las propiedades spring.datasource.hikari.*
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource datasourcePrimario(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primario");
+        return dataSource;
+    }
+
+    @Bean
+    public EnrutadorDataSource enrutadorDataSource(HikariDataSource datasourcePrimario,
+                                                   DataSourceProperties properties,
+                                                   Environment environment,
+                                                   EscriturasRecientes escriturasRecientes,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${usuarios.datasource.replica-urls:}") String urls,
+                                                   @Value("${usuarios.datasource.replica-username:}") String username,
+                                                   @Value("${usuarios.datasource.replica-password:}") String password,
+                                                   @Value("${usuarios.datasource.replica-connection-timeout-ms:1000}") long timeoutMillis) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        String[] lista = urls.split(",");
+        for (int i = 0; i < lista.length; i++) {
+            if (lista[i].isBlank()) {
+                continue;
+            }
+            // Parte de la configuración del primario (tamaño del pool, etc.) y sobrescribe lo propio de la réplica
+            HikariConfig config = new HikariConfig();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(config));
+            config.setJdbcUrl(lista[i].trim());
+            config.setUsername(username.isBlank() ? properties.determineUsername() : username);
+            config.setPassword(username.isBlank() ? properties.determinePassword() : password);
+            config.setDriverClassName(properties.determineDriverClassName());
+            config.setPoolName("replica-" + i);
+            config.setReadOnly(true);
+            // Una réplica caída no debe impedir el arranque ni bloquear peticiones más de un segundo
+            config.setConnectionTimeout(timeoutMillis);
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new HikariDataSource(config));
+        }
+        return new EnrutadorDataSource(datasourcePrimario, replicas, escriturasRecientes, meterRegistry);
+    }
+
+    // DataSource que usan JPA, JdbcTemplate y Flyway
+    @Bean
+    @Primary
+    public DataSource dataSource(EnrutadorDataSource enrutadorDataSource) {
+        return new LazyConnectionDataSourceProxy(enrutadorDataSource);
+    }
+}
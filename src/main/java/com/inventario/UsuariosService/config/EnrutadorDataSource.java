@@ -0,0 +1,129 @@
+package com.inventario.UsuariosService.config;
+
+import com.inventario.UsuariosService.service.EscriturasRecientes;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envía las transacciones de solo lectura a las réplicas (por turnos) y todo lo demás al primario.
+ * Las lecturas también van al primario durante la ventana de EscriturasRecientes del cliente y
+ * cuando no queda ninguna réplica disponible. Una réplica que falla al dar conexión se retira
+ * hasta que comprobarReplicas vuelve a validarla.
+ * Debe usarse detrás de LazyConnectionDataSourceProxy: así la conexión real se pide con la
+ * transacción ya marcada como readOnly.
+ */
+public class EnrutadorDataSource extends AbstractDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(EnrutadorDataSource.class);
+
+    private final DataSource primario;
+    private final List<Replica> replicas;
+    private final EscriturasRecientes escriturasRecientes;
+    private final AtomicInteger turno = new AtomicInteger();
+
+    private final Counter haciaPrimario;
+    private final Counter haciaReplica;
+    private final Counter fallosReplica;
+
+    public EnrutadorDataSource(DataSource primario,
+                               List<HikariDataSource> replicas,
+                               EscriturasRecientes escriturasRecientes,
+                               MeterRegistry meterRegistry) {
+        this.primario = primario;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.escriturasRecientes = escriturasRecientes;
+        this.haciaPrimario = Counter.builder("usuarios.datasource.conexiones").tag("destino", "primario").register(meterRegistry);
+        this.haciaReplica = Counter.builder("usuarios.datasource.conexiones").tag("destino", "replica").register(meterRegistry);
+        this.fallosReplica = Counter.builder("usuarios.datasource.replica.fallos").register(meterRegistry);
+        Gauge.builder("usuarios.datasource.replicas.disponibles", this,
+                e -> e.replicas.stream().filter(r -> r.disponible).count()).register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = elegirReplica();
+        if (replica != null) {
+            try {
+                Connection conexion = replica.dataSource.getConnection();
+                haciaReplica.increment();
+                return conexion;
+            } catch (SQLException e) {
+                // Se atiende desde el primario; la réplica queda fuera hasta la próxima comprobación
+                replica.disponible = false;
+                fallosReplica.increment();
+                logger.warn("Réplica {} no disponible, se usa el primario: {}",
+                        replica.dataSource.getPoolName(), e.getMessage());
+            }
+        }
+        haciaPrimario.increment();
+        return primario.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Credenciales explícitas solo tienen sentido contra el primario
+        haciaPrimario.increment();
+        return primario.getConnection(username, password);
+    }
+
+    private Replica elegirReplica() {
+        int total = replicas.size();
+        if (total == 0 || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || escriturasRecientes.dentroDeVentana()) {
+            return null;
+        }
+        int inicio = Math.floorMod(turno.getAndIncrement(), total);
+        for (int i = 0; i < total; i++) {
+            Replica replica = replicas.get((inicio + i) % total);
+            if (replica.disponible) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    // Reincorpora las réplicas retiradas en cuanto vuelven a dar una conexión válida
+    @Scheduled(fixedDelayString = "${usuarios.datasource.replica-check-ms:5000}")
+    public void comprobarReplicas() {
+        for (Replica replica : replicas) {
+            if (replica.disponible) {
+                continue;
+            }
+            try (Connection conexion = replica.dataSource.getConnection()) {
+                if (conexion.isValid(1)) {
+                    replica.disponible = true;
+                    logger.info("Réplica {} disponible de nuevo", replica.dataSource.getPoolName());
+                }
+            } catch (SQLException e) {
+                logger.debug("Réplica {} sigue sin responder: {}", replica.dataSource.getPoolName(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        replicas.forEach(r -> r.dataSource.close());
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        private volatile boolean disponible = true;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
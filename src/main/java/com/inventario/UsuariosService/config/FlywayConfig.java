@@ -0,0 +1,21 @@
+package com.inventario.UsuariosService.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    // Con el jar procesado por AOT (-Paot) la condición spring.flyway.enabled se evalúa al compilar y
+    // Flyway migra siempre; así el arranque de entrenamiento de CDS del Dockerfile puede omitirlo sin base de datos
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${spring.flyway.enabled:true}") boolean habilitado) {
+        return flyway -> {
+            if (habilitado) {
+                flyway.migrate();
+            }
+        };
+    }
+}
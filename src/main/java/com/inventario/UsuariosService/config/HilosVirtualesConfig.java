@@ -0,0 +1,34 @@
+package com.inventario.UsuariosService.config;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Modo hilos virtuales (perfil "virtual", spring.threads.virtual.enabled=true). En dos casos Spring Boot
+ * lo ignoraría sin avisar y el servicio seguiría con hilos de plataforma: en Java 17, y con el jar
+ * procesado por AOT (-Paot, imagen Docker), cuyas condiciones de hilos virtuales se fijaron al compilar.
+ * En ambos se detiene el arranque para que el modo nunca quede activado solo en apariencia. La propiedad
+ * se comprueba en tiempo de ejecución, no con @Profile, para que AOT no fije también esta comprobación.
+ * El jar debe compilarse con mvn -Pvirtual (Java 21) y sin -Paot.
+ */
+@Configuration
+public class HilosVirtualesConfig {
+
+    private static final int JAVA_MINIMO = 21;
+
+    public HilosVirtualesConfig(@Value("${spring.threads.virtual.enabled:false}") boolean virtuales) {
+        if (!virtuales) {
+            return;
+        }
+        int version = Runtime.version().feature();
+        if (version < JAVA_MINIMO) {
+            throw new IllegalStateException("Los hilos virtuales necesitan Java " + JAVA_MINIMO
+                    + " o superior; el proceso se ejecuta con Java " + version);
+        }
+        if (AotDetector.useGeneratedArtifacts()) {
+            throw new IllegalStateException("Los hilos virtuales no tienen efecto con spring.aot.enabled=true: "
+                    + "el jar AOT se compiló con hilos de plataforma; usa el jar de mvn -Pvirtual package sin -Paot");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.inventario.UsuariosService.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class PasswordEncoderConfig {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordEncoderConfig.class);
+    private static final int BCRYPT_MIN_STRENGTH = 10;
+    private static final int BCRYPT_MAX_STRENGTH = 16;
+
+    // Encoder delegante: los hashes nuevos usan password.encoder.algorithm; los existentes se verifican
+    // con su propio algoritmo y los hashes sin prefijo (p. ej. data.sql) se tratan como BCrypt.
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${password.encoder.algorithm:bcrypt}") String algoritmo,
+                                           @Value("${password.encoder.bcrypt-strength:0}") int bcryptStrength,
+                                           @Value("${password.encoder.target-ms:100}") long objetivoMillis) {
+        int strength = bcryptStrength > 0 ? bcryptStrength : calibrarBCrypt(objetivoMillis);
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        if (!encoders.containsKey(algoritmo)) {
+            throw new IllegalStateException("password.encoder.algorithm no soportado: " + algoritmo);
+        }
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(algoritmo, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        logger.info("Encoder de contraseñas: {} (bcrypt strength {})", algoritmo, strength);
+        return delegating;
+    }
+
+    // Mayor coste de BCrypt cuyo hash cabe en el presupuesto de tiempo en este hardware (nunca por debajo de 10)
+    private static int calibrarBCrypt(long objetivoMillis) {
+        int elegido = BCRYPT_MIN_STRENGTH;
+        for (int strength = BCRYPT_MIN_STRENGTH; strength <= BCRYPT_MAX_STRENGTH; strength++) {
+            BCryptPasswordEncoder candidato = new BCryptPasswordEncoder(strength);
+            candidato.encode("calentamiento");
+            long inicio = System.nanoTime();
+            candidato.encode("calibracion");
+            long millis = (System.nanoTime() - inicio) / 1_000_000;
+            if (millis > objetivoMillis) {
+                break;
+            }
+            elegido = strength;
+            // Cada punto de coste duplica el tiempo: no hace falta medir el siguiente si ya no cabría
+            if (millis * 2 > objetivoMillis) {
+                break;
+            }
+        }
+        return elegido;
+    }
+}
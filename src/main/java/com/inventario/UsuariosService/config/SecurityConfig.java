@@ -1,6 +1,9 @@
 package com.inventario.UsuariosService.config;
 
 import com.inventario.UsuariosService.filter.JwtRequestFilter;
+import com.inventario.UsuariosService.filter.TokenServicioFilter;
+import com.inventario.UsuariosService.service.EscriturasRecientes;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -8,8 +11,6 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -24,14 +25,11 @@ import java.util.Arrays;
 public class SecurityConfig {
 
     private final JwtRequestFilter jwtRequestFilter;
+    private final TokenServicioFilter tokenServicioFilter;
     
-    public SecurityConfig(JwtRequestFilter jwtRequestFilter) {
+    public SecurityConfig(JwtRequestFilter jwtRequestFilter, TokenServicioFilter tokenServicioFilter) {
         this.jwtRequestFilter = jwtRequestFilter;
-    }
-
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        this.tokenServicioFilter = tokenServicioFilter;
     }
 
     @Bean
@@ -40,23 +38,42 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(authz -> authz
-                .requestMatchers("/api/usuarios/login", "/api/usuarios/health", "/api/usuarios/init-admin", "/api/usuarios/first", "/api/usuarios/internal/**").permitAll() // Permitir endpoints públicos
+                .requestMatchers(JwtRequestFilter.RUTAS_PUBLICAS).permitAll() // Permitir endpoints públicos
+                .requestMatchers(TokenServicioFilter.RUTAS_INTERNAS).access(tokenServicioFilter.autorizacion()) // Otros microservicios (token opcional)
                 .requestMatchers(HttpMethod.POST, "/api/usuarios").hasRole("ADMIN") // Solo ADMIN puede crear usuarios
                 .requestMatchers(HttpMethod.GET, "/api/usuarios").hasRole("ADMIN") // Solo ADMIN puede listar usuarios
                 .anyRequest().authenticated() // Todas las demás rutas requieren autenticación
             )
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(tokenServicioFilter, UsernamePasswordAuthenticationFilter.class)
             .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class)
             .build();
     }
 
+    // Los filtros solo deben ejecutarse dentro de la cadena de seguridad, no también como filtros del servlet
+    @Bean
+    public FilterRegistrationBean<JwtRequestFilter> jwtRequestFilterRegistration() {
+        FilterRegistrationBean<JwtRequestFilter> registro = new FilterRegistrationBean<>(jwtRequestFilter);
+        registro.setEnabled(false);
+        return registro;
+    }
+
+    @Bean
+    public FilterRegistrationBean<TokenServicioFilter> tokenServicioFilterRegistration() {
+        FilterRegistrationBean<TokenServicioFilter> registro = new FilterRegistrationBean<>(tokenServicioFilter);
+        registro.setEnabled(false);
+        return registro;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOriginPatterns(Arrays.asList("*"));
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:*", "http://127.0.0.1:*", "https://localhost:*"));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "HEAD"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        // El cliente la reenvía tras escribir para leer del primario (ver EscriturasRecientes)
+        configuration.setExposedHeaders(Arrays.asList(EscriturasRecientes.CABECERA));
         configuration.setAllowCredentials(false); // Cambio importante para Flutter Web
         configuration.setMaxAge(3600L);
         
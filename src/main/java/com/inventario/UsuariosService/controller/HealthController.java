@@ -1,21 +1,33 @@
 package com.inventario.UsuariosService.controller;
 
 
+import com.inventario.UsuariosService.service.MonitorCarga;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+// Único health check público; /api/usuarios/health se mantiene como alias para los clientes existentes
 @RestController
 public class HealthController {
 
-    @GetMapping("/health")
-    public Map<String, Object> health() {
-        Map<String, Object> status = new HashMap<>();
-        status.put("status", "UP");
+    private final MonitorCarga monitorCarga;
+
+    public HealthController(MonitorCarga monitorCarga) {
+        this.monitorCarga = monitorCarga;
+    }
+
+    // OUT_OF_SERVICE con 503 mientras la instancia está saturada, para que el balanceador la aparte
+    @GetMapping({"/health", "/api/usuarios/health"})
+    public ResponseEntity<Map<String, Object>> health() {
+        boolean admite = monitorCarga.admiteTrafico();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("status", admite ? "UP" : "OUT_OF_SERVICE");
         status.put("service", "UsuariosService");
         status.put("timestamp", System.currentTimeMillis());
-        return status;
+        status.put("carga", monitorCarga.detalle());
+        return ResponseEntity.status(admite ? 200 : 503).body(status);
     }
 }
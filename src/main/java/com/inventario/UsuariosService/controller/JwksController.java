@@ -0,0 +1,28 @@
+package com.inventario.UsuariosService.controller;
+
+import com.inventario.UsuariosService.util.JwtKeyProvider;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Claves públicas para que los demás microservicios verifiquen los tokens localmente
+@RestController
+public class JwksController {
+
+    private final JwtKeyProvider keyProvider;
+
+    public JwksController(JwtKeyProvider keyProvider) {
+        this.keyProvider = keyProvider;
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(10)).cachePublic())
+                .body(keyProvider.jwks());
+    }
+}
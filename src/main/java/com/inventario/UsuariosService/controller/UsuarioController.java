@@ -1,47 +1,191 @@
 package com.inventario.UsuariosService.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.inventario.UsuariosService.dto.CambioUsuario;
+import com.inventario.UsuariosService.dto.ProyeccionInterna;
+import com.inventario.UsuariosService.dto.UsuarioCambios;
+import com.inventario.UsuariosService.dto.UsuarioResumen;
 import com.inventario.UsuariosService.entity.Usuario;
+import com.inventario.UsuariosService.service.AuditoriaService;
+import com.inventario.UsuariosService.service.AuditoriaService.TipoEvento;
+import com.inventario.UsuariosService.service.BusquedaUsuariosIndex;
+import com.inventario.UsuariosService.service.CorreoDuplicadoException;
+import com.inventario.UsuariosService.service.FallosLoginRegistro;
+import com.inventario.UsuariosService.service.HashingSaturadoException;
+import com.inventario.UsuariosService.service.LimitadorLogin;
+import com.inventario.UsuariosService.service.PasswordHashingService;
+import com.inventario.UsuariosService.service.ProyeccionInternaCache;
+import com.inventario.UsuariosService.service.RefreshTokenService;
+import com.inventario.UsuariosService.service.RevocacionTokenService;
+import com.inventario.UsuariosService.service.UsuarioImportService;
 import com.inventario.UsuariosService.service.UsuarioService;
+import com.inventario.UsuariosService.util.JwtClaims;
 import com.inventario.UsuariosService.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.HashMap;
 
+// Siempre se crea al arrancar, también con spring.main.lazy-initialization (perfil rapido):
+// el primer /login no debe pagar la construcción de todo el camino de autenticación
+@Lazy(false)
 @RestController
 @RequestMapping("/api/usuarios")
 public class UsuarioController {
     private static final Logger logger = LoggerFactory.getLogger(UsuarioController.class);
     private final UsuarioService usuarioService;
     private final JwtUtil jwtUtil;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final UsuarioImportService usuarioImportService;
+    private final RevocacionTokenService revocacionTokenService;
+    private final RefreshTokenService refreshTokenService;
+    private final AuditoriaService auditoria;
+    private final FallosLoginRegistro fallosLogin;
+    private final LimitadorLogin limitadorLogin;
+    private final ObjectMapper objectMapper;
+    private final int maxLoteInterno;
+    // Fases del login: búsqueda en BD/caché, BCrypt y emisión de tokens
+    private final Timer loginBusqueda;
+    private final Timer loginHash;
+    private final Timer loginToken;
+    private static final int MAX_LIMITE_PAGINA = 500;
+    private static final int MAX_LIMITE_CAMBIOS = 5000;
+    private static final int MAX_LIMITE_BUSQUEDA = 100;
+    // Reconexión de EventSource a /internal/changes: sondeo de nuevas versiones
+    private static final long SSE_REINTENTO_MILLIS = 2000;
 
     public UsuarioController(UsuarioService usuarioService, 
                            JwtUtil jwtUtil, 
-                           PasswordEncoder passwordEncoder) {
+                           PasswordHashingService passwordHashingService,
+                           @Lazy UsuarioImportService usuarioImportService,
+                           RevocacionTokenService revocacionTokenService,
+                           RefreshTokenService refreshTokenService,
+                           AuditoriaService auditoria,
+                           FallosLoginRegistro fallosLogin,
+                           LimitadorLogin limitadorLogin,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${usuarios.internal.batch-max:500}") int maxLoteInterno) {
         this.usuarioService = usuarioService;
         this.jwtUtil = jwtUtil;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.usuarioImportService = usuarioImportService;
+        this.revocacionTokenService = revocacionTokenService;
+        this.refreshTokenService = refreshTokenService;
+        this.auditoria = auditoria;
+        this.fallosLogin = fallosLogin;
+        this.limitadorLogin = limitadorLogin;
+        this.objectMapper = objectMapper;
+        this.maxLoteInterno = maxLoteInterno;
+        this.loginBusqueda = Timer.builder("login.fase").tag("fase", "busqueda").register(meterRegistry);
+        this.loginHash = Timer.builder("login.fase").tag("fase", "bcrypt").register(meterRegistry);
+        this.loginToken = Timer.builder("login.fase").tag("fase", "token").register(meterRegistry);
     }
 
     // Solo usuarios con rol ADMIN pueden ver la lista de usuarios
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public List<Usuario> getAllUsuarios() {
-        return usuarioService.getAllUsuariosIncluyendoInactivos();
+    public List<UsuarioResumen> getAllUsuarios() {
+        // Proyección sin contraseña; para volúmenes grandes usar /pagina o /stream
+        List<UsuarioResumen> usuarios = new ArrayList<>();
+        usuarioService.recorrerResumen(null, null, usuarios::add);
+        return usuarios;
+    }
+
+    // Paginación por clave: pasar el "siguiente" de la respuesta como despuesDe de la próxima llamada
+    @GetMapping("/pagina")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getUsuariosPagina(@RequestParam(required = false) Long despuesDe,
+                                               @RequestParam(defaultValue = "50") int limite,
+                                               @RequestParam(required = false) String rol,
+                                               @RequestParam(required = false) Boolean activo) {
+        if (limite < 1 || limite > MAX_LIMITE_PAGINA) {
+            return ResponseEntity.badRequest().body("El límite debe estar entre 1 y " + MAX_LIMITE_PAGINA);
+        }
+        List<UsuarioResumen> usuarios = usuarioService.listarResumen(despuesDe, limite, rol, activo);
+        Map<String, Object> response = new HashMap<>();
+        response.put("usuarios", usuarios);
+        response.put("siguiente", usuarios.size() == limite ? usuarios.get(usuarios.size() - 1).id() : null);
+        return ResponseEntity.ok(response);
+    }
+
+    // Búsqueda para la administración por fragmento de nombre o correo, con filtros opcionales.
+    // Primero los que empiezan por q (correo o palabra del nombre); "truncado" indica que hay más.
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> buscarUsuarios(@RequestParam String q,
+                                            @RequestParam(required = false) String rol,
+                                            @RequestParam(required = false) Boolean activo,
+                                            @RequestParam(defaultValue = "20") int limite) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body("El parámetro q no puede estar vacío");
+        }
+        if (limite < 1 || limite > MAX_LIMITE_BUSQUEDA) {
+            return ResponseEntity.badRequest().body("El límite debe estar entre 1 y " + MAX_LIMITE_BUSQUEDA);
+        }
+        BusquedaUsuariosIndex.Resultado resultado = usuarioService.buscar(q, rol, activo, limite);
+        Map<String, Object> response = new HashMap<>();
+        response.put("usuarios", resultado.usuarios());
+        response.put("truncado", resultado.truncado());
+        return ResponseEntity.ok(response);
+    }
+
+    // Listado completo en NDJSON (un usuario por línea), con memoria constante
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void streamUsuarios(@RequestParam(required = false) String rol,
+                               @RequestParam(required = false) Boolean activo,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+        try {
+            usuarioService.recorrerResumen(rol, activo, usuario -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(usuario));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Usuario> getUsuarioById(@PathVariable Long id) {
         Optional<Usuario> usuario = usuarioService.getUsuarioById(id);
-        return usuario.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        // Con Last-Modified, Spring responde 304 a un If-Modified-Since sin cambios
+        return usuario.map(u -> ResponseEntity.ok().lastModified(ProyeccionInternaCache.ultimaModificacion(u)).body(u))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     // Solo usuarios con rol ADMIN pueden crear usuarios
@@ -49,40 +193,63 @@ public class UsuarioController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> createUsuario(@RequestBody Usuario usuario) {
         try {
-            // Verificar si el correo ya existe
-            if (usuarioService.buscarPorCorreo(usuario.getCorreo()).isPresent()) {
-                return ResponseEntity.badRequest().body("El correo ya existe");
-            }
-            
+            // Un correo repetido lo detecta la restricción única al insertar (CorreoDuplicadoException)
             // Encriptar la contraseña antes de guardar
-            usuario.setContrasena(passwordEncoder.encode(usuario.getContrasena()));
+            usuario.setContrasena(passwordHashingService.encode(usuario.getContrasena()));
             usuario.setActivo(true);
             Usuario creado = usuarioService.saveUsuario(usuario);
             
             // No devolver la contraseña en la respuesta
             creado.setContrasena(null);
             return ResponseEntity.ok(creado);
+        } catch (CorreoDuplicadoException e) {
+            return ResponseEntity.badRequest().body("El correo ya existe");
+        } catch (HashingSaturadoException e) {
+            return servicioSaturado(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error al crear usuario: " + e.getMessage());
         }
     }
 
+    // Importación masiva (CSV con cabecera nombre,correo,rol,contrasena o NDJSON); responde NDJSON con una línea por fila
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"}, produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void importarUsuarios(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean csv = request.getContentType() != null && request.getContentType().startsWith("text/csv");
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+        BufferedReader lector = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        try {
+            usuarioImportService.importar(lector, csv, resultado -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(resultado));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
     // Endpoint público para crear el primer usuario (usado por frontend legacy)
     @PostMapping("/first")
-    public ResponseEntity<?> createFirstUsuario(@RequestBody Usuario usuario) {
+    public ResponseEntity<?> createFirstUsuario(@RequestBody Usuario usuario, HttpServletRequest request) {
+        long espera = limitadorLogin.esperaMillis(request.getRemoteAddr(), null);
+        if (espera > 0) {
+            return demasiadosIntentos(espera);
+        }
         try {
             // Solo permite crear si no hay usuarios en el sistema
             if (usuarioService.hasAnyUsuarios()) {
                 return ResponseEntity.status(409).body("Ya existen usuarios en el sistema");
             }
             
-            // Verificar si el correo ya existe
-            if (usuarioService.buscarPorCorreo(usuario.getCorreo()).isPresent()) {
-                return ResponseEntity.badRequest().body("El correo ya existe");
-            }
-            
             // Encriptar la contraseña antes de guardar
-            usuario.setContrasena(passwordEncoder.encode(usuario.getContrasena()));
+            usuario.setContrasena(passwordHashingService.encode(usuario.getContrasena()));
             usuario.setActivo(true);
             if (usuario.getRol() == null || usuario.getRol().isEmpty()) {
                 usuario.setRol("ADMIN"); // Primer usuario siempre es admin
@@ -92,79 +259,134 @@ public class UsuarioController {
             // No devolver la contraseña en la respuesta
             creado.setContrasena(null);
             return ResponseEntity.ok(creado);
+        } catch (CorreoDuplicadoException e) {
+            return ResponseEntity.badRequest().body("El correo ya existe");
+        } catch (HashingSaturadoException e) {
+            return servicioSaturado(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error al crear usuario: " + e.getMessage());
         }
     }
 
-    // Endpoint de login público (no requiere autenticación)
+    // Endpoint de login público (no requiere autenticación).
+    // Cada intento queda en la auditoría asíncrona en lugar de escribirse en el log dentro de la petición.
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> credentials) {
+    public ResponseEntity<?> login(@RequestBody Map<String, String> credentials, HttpServletRequest request) {
         String correo = credentials.get("correo");
         String contrasena = credentials.get("contrasena");
+        String ip = request.getRemoteAddr();
+        
+        // Antes de tocar la base de datos o BCrypt
+        long espera = limitadorLogin.esperaMillis(ip, correo);
+        if (espera > 0) {
+            auditoria.registrar(TipoEvento.LOGIN_LIMITADO, correo, null, ip, null);
+            return demasiadosIntentos(espera);
+        }
+        // Cuenta con demasiados fallos seguidos; también para correos desconocidos, así no revela cuáles existen
+        long bloqueo = fallosLogin.esperaMillis(correo);
+        if (bloqueo > 0) {
+            auditoria.registrar(TipoEvento.LOGIN_LIMITADO, correo, null, ip, "Demasiados fallos seguidos");
+            return demasiadosIntentos(bloqueo);
+        }
         
         try {
-            logger.info("Intento de login para: {}", correo);
-            
-            Optional<Usuario> usuarioOpt = usuarioService.buscarPorCorreo(correo);
+            Optional<Usuario> usuarioOpt = loginBusqueda.record(() -> usuarioService.buscarPorCorreo(correo));
             
             if (usuarioOpt.isEmpty()) {
-                logger.warn("Usuario no encontrado: {}", correo);
-                return ResponseEntity.status(401).body("Credenciales incorrectas");
+                // Mismo coste que una contraseña incorrecta para no revelar qué correos existen
+                loginHash.record(() -> passwordHashingService.matchesFicticio(contrasena));
+                return loginFallido(correo, null, ip, "Usuario no encontrado");
             }
             
             Usuario usuario = usuarioOpt.get();
-            logger.debug("Usuario encontrado: {}", usuario.getCorreo());
             
             // Verificar contraseña
-            if (!passwordEncoder.matches(contrasena, usuario.getContrasena())) {
-                logger.warn("Contraseña incorrecta para: {}", correo);
-                return ResponseEntity.status(401).body("Credenciales incorrectas");
+            if (!loginHash.record(() -> passwordHashingService.matches(contrasena, usuario.getContrasena()))) {
+                return loginFallido(correo, usuario.getId(), ip, "Contraseña incorrecta");
             }
             
             if (!usuario.getActivo()) {
-                logger.warn("Usuario inactivo: {}", correo);
+                auditoria.registrar(TipoEvento.LOGIN_INACTIVO, correo, usuario.getId(), ip, null);
                 return ResponseEntity.status(401).body("Usuario inactivo");
             }
             
-            logger.debug("Generando JWT token para: {}", correo);
+            // Hash con algoritmo o coste antiguo: se actualiza en segundo plano sin retrasar la respuesta
+            if (passwordHashingService.necesitaRehash(usuario.getContrasena())) {
+                String hashAnterior = usuario.getContrasena();
+                passwordHashingService.rehashEnSegundoPlano(contrasena,
+                        nuevo -> usuarioService.actualizarHashContrasena(usuario.getId(), hashAnterior, nuevo));
+            }
             
             // Generar JWT token
+            Timer.Sample emision = Timer.start();
             String token = jwtUtil.generateToken(usuario.getCorreo(), usuario.getNombre(), usuario.getRol());
+            String refreshToken = refreshTokenService.emitir(usuario.getId());
+            emision.stop(loginToken);
             
-            logger.info("JWT token generado exitosamente para: {}", correo);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("token", token);
-            response.put("usuario", Map.of(
-                "id", usuario.getId(),
-                "nombre", usuario.getNombre(),
-                "correo", usuario.getCorreo(),
-                "rol", usuario.getRol()
-            ));
-            
-            return ResponseEntity.ok(response);
+            fallosLogin.reiniciar(correo);
+            auditoria.registrar(TipoEvento.LOGIN_OK, correo, usuario.getId(), ip, null);
+            return ResponseEntity.ok(respuestaLogin(usuario, token, refreshToken));
+        } catch (HashingSaturadoException e) {
+            auditoria.registrar(TipoEvento.LOGIN_SATURADO, correo, null, ip, null);
+            return servicioSaturado(e);
         } catch (Exception e) {
-            logger.error("Error en login para {}: {}", correo, e.getMessage(), e);
+            auditoria.registrar(TipoEvento.LOGIN_ERROR, correo, null, ip, e.getClass().getSimpleName());
+            // Sin traza completa salvo en debug: un fallo de la base de datos la repetiría en cada intento
+            logger.error("Error en login para {}: {}", correo, e.getMessage());
+            logger.debug("Detalle del error en login", e);
             return ResponseEntity.status(500).body("Error interno del servidor: " + e.getMessage());
         }
     }
 
-    // Endpoint público para consultas internas entre microservicios
+    // Mismo mensaje para correo desconocido y contraseña incorrecta; el motivo solo queda en la auditoría
+    private ResponseEntity<?> loginFallido(String correo, Long usuarioId, String ip, String motivo) {
+        int fallos = fallosLogin.registrarFallo(correo);
+        auditoria.registrar(TipoEvento.LOGIN_FALLIDO, correo, usuarioId, ip, motivo + " (" + fallos + ")");
+        return ResponseEntity.status(401).body("Credenciales incorrectas");
+    }
+
+    // Renueva el access token con un refresh token de un solo uso, sin BCrypt ni contraseña
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> peticion) {
+        Optional<RefreshTokenService.Rotacion> rotacion = refreshTokenService.rotar(peticion.get("refreshToken"));
+        if (rotacion.isEmpty()) {
+            return ResponseEntity.status(401).body("Refresh token no válido");
+        }
+        Optional<Usuario> usuarioOpt = usuarioService.getUsuarioById(rotacion.get().usuarioId());
+        if (usuarioOpt.isEmpty() || !usuarioOpt.get().getActivo()) {
+            refreshTokenService.revocarDeUsuario(rotacion.get().usuarioId());
+            return ResponseEntity.status(401).body("Usuario inactivo");
+        }
+        Usuario usuario = usuarioOpt.get();
+        String token = jwtUtil.generateToken(usuario.getCorreo(), usuario.getNombre(), usuario.getRol());
+        return ResponseEntity.ok(respuestaLogin(usuario, token, rotacion.get().refreshToken()));
+    }
+
+    // Revoca el token con el que se hace la petición
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader("Authorization") String authorization) {
+        if (!authorization.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body("Token no válido");
+        }
+        JwtClaims claims = jwtUtil.extractClaims(authorization.substring(7));
+        revocacionTokenService.revocarToken(claims);
+        auditoria.registrar(TipoEvento.LOGOUT, claims.correo(), null);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Consultas internas entre microservicios (X-Service-Token, ver TokenServicioFilter)
     @GetMapping("/internal/{id}")
     public ResponseEntity<?> getUsuarioForInternalService(@PathVariable Long id) {
         try {
-            Optional<Usuario> usuario = usuarioService.getUsuarioById(id);
-            if (usuario.isPresent()) {
-                Usuario u = usuario.get();
-                // Devolver solo los datos necesarios sin la contraseña
-                Map<String, Object> response = new HashMap<>();
-                response.put("id", u.getId());
-                response.put("nombre", u.getNombre());
-                response.put("correo", u.getCorreo());
-                response.put("rol", u.getRol());
-                response.put("activo", u.getActivo());
-                return ResponseEntity.ok(response);
+            Optional<ProyeccionInterna> proyeccion = usuarioService.getProyeccionInterna(id);
+            if (proyeccion.isPresent()) {
+                // JSON precalculado; Spring responde 304 sin cuerpo si coincide If-None-Match o If-Modified-Since
+                ProyeccionInterna p = proyeccion.get();
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .eTag(p.etag())
+                        .lastModified(p.ultimaModificacion())
+                        .body(p.bytes());
             } else {
                 return ResponseEntity.notFound().build();
             }
@@ -173,9 +395,145 @@ public class UsuarioController {
         }
     }
 
+    // Consulta por lotes para otros microservicios: {"ids": [...], "correos": [...]}.
+    // Con If-Modified-Since solo se devuelven los usuarios cambiados; el resto se lista en "sinCambios".
+    @PostMapping("/internal/batch")
+    public ResponseEntity<?> getUsuariosForInternalServiceBatch(@RequestBody Map<String, List<Object>> peticion,
+                                                                HttpServletRequest request) {
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (Object id : peticion.getOrDefault("ids", List.of())) {
+                if (id != null) {
+                    ids.add(Long.valueOf(id.toString()));
+                }
+            }
+            List<String> correos = new ArrayList<>();
+            for (Object correo : peticion.getOrDefault("correos", List.of())) {
+                if (correo != null) {
+                    correos.add(correo.toString());
+                }
+            }
+            if (ids.size() + correos.size() > maxLoteInterno) {
+                return ResponseEntity.badRequest().body("Máximo " + maxLoteInterno + " elementos por lote");
+            }
+
+            Map<Long, Usuario> porId = usuarioService.getUsuariosPorIds(ids);
+            Map<String, Usuario> porCorreo = usuarioService.getUsuariosPorCorreos(correos);
+
+            long desde = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            // Cada usuario se escribe con su JSON ya serializado, sin pasar otra vez por Jackson
+            Map<Long, RawValue> usuarios = new LinkedHashMap<>();
+            Set<Long> sinCambios = new LinkedHashSet<>();
+            List<Usuario> encontrados = new ArrayList<>(porId.values());
+            encontrados.addAll(porCorreo.values());
+            for (Usuario u : encontrados) {
+                if (usuarios.containsKey(u.getId()) || sinCambios.contains(u.getId())) {
+                    continue;
+                }
+                ProyeccionInterna p = usuarioService.proyeccionInterna(u);
+                if (desde >= 0 && !p.modificadaDespuesDe(desde)) {
+                    sinCambios.add(u.getId());
+                } else {
+                    usuarios.put(u.getId(), new RawValue(p.json()));
+                }
+            }
+
+            List<Long> idsNoEncontrados = ids.stream().filter(id -> !porId.containsKey(id)).distinct().toList();
+            List<String> correosNoEncontrados = correos.stream()
+                    .filter(c -> !porCorreo.containsKey(c.toLowerCase(Locale.ROOT))).distinct().toList();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("usuarios", usuarios);
+            response.put("noEncontrados", Map.of("ids", idsNoEncontrados, "correos", correosNoEncontrados));
+            if (desde >= 0) {
+                response.put("sinCambios", sinCambios);
+            }
+            return ResponseEntity.ok(response);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body("Id no válido: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error al buscar usuarios: " + e.getMessage());
+        }
+    }
+
+    // Registro de cambios para que otros microservicios mantengan su copia sin consultar por id.
+    // Se pide desde la última versión procesada (since) y se continúa desde la "version" de la respuesta;
+    // con Accept application/x-ndjson o text/event-stream las entradas se escriben según se leen.
+    @GetMapping(value = "/internal/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getCambios(@RequestParam(defaultValue = "0") long since,
+                                        @RequestParam(defaultValue = "500") int limit) {
+        if (limit < 1 || limit > MAX_LIMITE_CAMBIOS) {
+            return ResponseEntity.badRequest().body("El límite debe estar entre 1 y " + MAX_LIMITE_CAMBIOS);
+        }
+        List<CambioUsuario> cambios = usuarioService.getCambios(since, limit);
+        Map<String, Object> response = new HashMap<>();
+        response.put("cambios", cambios);
+        response.put("version", cambios.isEmpty() ? since : cambios.get(cambios.size() - 1).version());
+        response.put("hayMas", cambios.size() == limit);
+        return ResponseEntity.ok(response);
+    }
+
+    // Una entrada por línea; la versión de la última línea es el since de la próxima llamada
+    @GetMapping(value = "/internal/changes", produces = "application/x-ndjson")
+    public void streamCambios(@RequestParam(defaultValue = "0") long since,
+                              @RequestParam(defaultValue = "500") int limit,
+                              HttpServletResponse response) throws IOException {
+        if (limit < 1 || limit > MAX_LIMITE_CAMBIOS) {
+            response.sendError(400, "El límite debe estar entre 1 y " + MAX_LIMITE_CAMBIOS);
+            return;
+        }
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        escribirCambios(since, limit, response.getOutputStream(), null);
+    }
+
+    // SSE: cada entrada es un evento con id = versión y la respuesta termina al agotar el lote.
+    // EventSource se reconecta tras "retry" enviando Last-Event-ID, que tiene prioridad sobre since;
+    // así se sigue el registro sin mantener un hilo por consumidor.
+    @GetMapping(value = "/internal/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void sseCambios(@RequestParam(defaultValue = "0") long since,
+                           @RequestParam(defaultValue = "500") int limit,
+                           @RequestHeader(value = "Last-Event-ID", required = false) Long ultimoEvento,
+                           HttpServletResponse response) throws IOException {
+        if (limit < 1 || limit > MAX_LIMITE_CAMBIOS) {
+            response.sendError(400, "El límite debe estar entre 1 y " + MAX_LIMITE_CAMBIOS);
+            return;
+        }
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+        out.write(("retry: " + SSE_REINTENTO_MILLIS + "\n\n").getBytes(StandardCharsets.UTF_8));
+        escribirCambios(ultimoEvento != null ? ultimoEvento : since, limit, out, "cambio");
+    }
+
+    // Sin evento SSE escribe NDJSON
+    private void escribirCambios(long desde, int limite, OutputStream out, String evento) throws IOException {
+        try {
+            usuarioService.recorrerCambios(desde, limite, cambio -> {
+                try {
+                    if (evento != null) {
+                        out.write(("id: " + cambio.version() + "\nevent: " + evento + "\ndata: ")
+                                .getBytes(StandardCharsets.UTF_8));
+                    }
+                    out.write(objectMapper.writeValueAsBytes(cambio));
+                    out.write(evento != null ? "\n\n".getBytes(StandardCharsets.UTF_8) : new byte[]{'\n'});
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
     // Endpoint para crear el primer admin (sin autenticación)
     @PostMapping("/init-admin")
-    public ResponseEntity<?> createAdminUsuario(@RequestBody Usuario usuario) {
+    public ResponseEntity<?> createAdminUsuario(@RequestBody Usuario usuario, HttpServletRequest request) {
+        long espera = limitadorLogin.esperaMillis(request.getRemoteAddr(), null);
+        if (espera > 0) {
+            return demasiadosIntentos(espera);
+        }
         try {
             // Verificar si ya existe algún usuario
             if (usuarioService.hasAnyUsuarios()) {
@@ -185,34 +543,42 @@ public class UsuarioController {
             // Crear el primer usuario admin
             usuario.setRol("ADMIN");
             usuario.setActivo(true);
-            usuario.setContrasena(passwordEncoder.encode(usuario.getContrasena()));
+            usuario.setContrasena(passwordHashingService.encode(usuario.getContrasena()));
             Usuario creado = usuarioService.saveUsuario(usuario);
             
             // No devolver la contraseña
             creado.setContrasena(null);
             return ResponseEntity.ok(creado);
+        } catch (CorreoDuplicadoException e) {
+            // Dos init-admin simultáneos con el mismo correo: lo detecta la restricción única
+            return ResponseEntity.badRequest().body("El correo ya existe");
+        } catch (HashingSaturadoException e) {
+            return servicioSaturado(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error al crear admin: " + e.getMessage());
         }
     }
 
+    // PUT y PATCH actualizan solo los campos presentes (nombre, correo, rol, activo) con un único UPDATE.
+    // La contraseña se ignora aquí: reescribirla con lo que envía el cliente dejaba un hash inválido.
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Usuario> updateUsuario(@PathVariable Long id, @RequestBody Usuario usuario) {
-        if (!usuarioService.getUsuarioById(id).isPresent()) {
-            return ResponseEntity.notFound().build();
-        }
-        Usuario updated = usuarioService.updateUsuario(id, usuario);
-        return ResponseEntity.ok(updated);
+    public ResponseEntity<?> updateUsuario(@PathVariable Long id, @RequestBody UsuarioCambios cambios) {
+        return actualizarParcial(id, cambios);
+    }
+
+    @PatchMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> patchUsuario(@PathVariable Long id, @RequestBody UsuarioCambios cambios) {
+        return actualizarParcial(id, cambios);
     }
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteUsuario(@PathVariable Long id) {
-        if (!usuarioService.getUsuarioById(id).isPresent()) {
+        if (!usuarioService.deleteUsuario(id)) {
             return ResponseEntity.notFound().build();
         }
-        usuarioService.deleteUsuario(id);
         return ResponseEntity.noContent().build();
     }
 
@@ -222,13 +588,43 @@ public class UsuarioController {
         return usuario.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    // Health check - público
-    @GetMapping("/health")
-    public Map<String, Object> health() {
-        Map<String, Object> status = new HashMap<>();
-        status.put("status", "UP");
-        status.put("service", "UsuariosService");
-        status.put("timestamp", System.currentTimeMillis());
-        return status;
+    private ResponseEntity<?> actualizarParcial(Long id, UsuarioCambios cambios) {
+        try {
+            Optional<Usuario> actualizado = usuarioService.updateUsuario(id, cambios);
+            if (actualizado.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            Usuario usuario = actualizado.get();
+            usuario.setContrasena(null);
+            return ResponseEntity.ok(usuario);
+        } catch (CorreoDuplicadoException e) {
+            return ResponseEntity.badRequest().body("El correo ya existe");
+        }
+    }
+
+    private Map<String, Object> respuestaLogin(Usuario usuario, String token, String refreshToken) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", token);
+        response.put("refreshToken", refreshToken);
+        response.put("usuario", Map.of(
+            "id", usuario.getId(),
+            "nombre", usuario.getNombre(),
+            "correo", usuario.getCorreo(),
+            "rol", usuario.getRol()
+        ));
+        return response;
+    }
+
+    private ResponseEntity<?> demasiadosIntentos(long esperaMillis) {
+        return ResponseEntity.status(429)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf((esperaMillis + 999) / 1000))
+                .body("Demasiados intentos, vuelve a intentarlo más tarde");
+    }
+
+    // Respuesta rápida cuando el pool de hashing está lleno, en lugar de esperar sin límite
+    private ResponseEntity<?> servicioSaturado(HashingSaturadoException e) {
+        return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSegundos()))
+                .body(e.getMessage());
     }
 }
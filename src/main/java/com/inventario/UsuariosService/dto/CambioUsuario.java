@@ -0,0 +1,15 @@
+package com.inventario.UsuariosService.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada de /internal/changes con el estado actual del usuario (sin contraseña).
+ * Para operacion ELIMINADO solo llevan valor version e id.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CambioUsuario(long version, Long id, String operacion,
+                            String nombre, String correo, String rol,
+                            LocalDateTime fechaRegistro, Boolean activo) {
+}
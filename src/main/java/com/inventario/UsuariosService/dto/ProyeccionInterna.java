@@ -0,0 +1,13 @@
+package com.inventario.UsuariosService.dto;
+
+/**
+ * Proyección interna de un usuario ya serializada a JSON, con su ETag fuerte (hash del contenido)
+ * y la última modificación en milisegundos redondeada al segundo, como en las cabeceras HTTP.
+ * Es inmutable: bytes no se modifica nunca tras construirse.
+ */
+public record ProyeccionInterna(Long id, String json, byte[] bytes, String etag, long ultimaModificacion) {
+
+    public boolean modificadaDespuesDe(long instanteMillis) {
+        return ultimaModificacion > instanteMillis;
+    }
+}
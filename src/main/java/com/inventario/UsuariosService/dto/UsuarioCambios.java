@@ -0,0 +1,8 @@
+package com.inventario.UsuariosService.dto;
+
+/**
+ * Cuerpo de PUT/PATCH de usuario: un campo ausente llega como null y no se modifica.
+ * No usa la entidad porque Usuario inicializa activo a true y lo activaría sin pedirlo.
+ */
+public record UsuarioCambios(String nombre, String correo, String rol, Boolean activo) {
+}
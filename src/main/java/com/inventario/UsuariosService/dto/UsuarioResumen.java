@@ -0,0 +1,10 @@
+package com.inventario.UsuariosService.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de Usuario para listados: nunca carga la contraseña ni entidades gestionadas.
+ */
+public record UsuarioResumen(Long id, String nombre, String correo, String rol,
+                             LocalDateTime fechaRegistro, Boolean activo) {
+}
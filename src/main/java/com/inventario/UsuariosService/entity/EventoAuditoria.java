@@ -0,0 +1,40 @@
+package com.inventario.UsuariosService.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Solo se inserta por lotes desde AuditoriaService (JDBC); la entidad define la tabla y permite consultarla
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "eventos_auditoria", indexes = {
+        @Index(name = "idx_eventos_auditoria_correo", columnList = "correo"),
+        @Index(name = "idx_eventos_auditoria_fecha", columnList = "fecha")
+})
+public class EventoAuditoria {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tipo", nullable = false, length = 40)
+    private String tipo;
+
+    @Column(name = "correo", length = 150)
+    private String correo;
+
+    @Column(name = "usuario_id")
+    private Long usuarioId;
+
+    @Column(name = "ip", length = 45)
+    private String ip;
+
+    @Column(name = "detalle", length = 255)
+    private String detalle;
+
+    // Epoch en milisegundos del momento en que ocurrió el evento (no el de la escritura)
+    @Column(name = "fecha", nullable = false)
+    private Long fecha;
+}
@@ -0,0 +1,35 @@
+package com.inventario.UsuariosService.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_usuario", columnList = "usuario_id"),
+        @Index(name = "idx_refresh_tokens_familia", columnList = "familia"),
+        @Index(name = "idx_refresh_tokens_expira_en", columnList = "expira_en")
+})
+public class RefreshToken {
+    // SHA-256 del token en Base64url; el token en claro nunca se guarda
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    // Todos los tokens obtenidos por rotación desde un mismo login comparten familia
+    @Column(name = "familia", nullable = false, length = 36)
+    private String familia;
+
+    @Column(name = "expira_en", nullable = false)
+    private Long expiraEn;
+
+    @Column(name = "usado", nullable = false)
+    private Boolean usado = false;
+}
@@ -0,0 +1,26 @@
+package com.inventario.UsuariosService.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "revocaciones_token", indexes = @Index(name = "idx_revocaciones_expira_en", columnList = "expira_en"))
+public class RevocacionToken {
+    // "jti:<id del token>" o "usuario:<correo>"
+    @Id
+    @Column(name = "clave", length = 150)
+    private String clave;
+
+    // Epoch en milisegundos; para usuarios, los tokens emitidos antes de este instante quedan revocados
+    @Column(name = "revocado_en", nullable = false)
+    private Long revocadoEn;
+
+    // A partir de aquí ningún token afectado puede seguir siendo válido y la fila se puede borrar
+    @Column(name = "expira_en", nullable = false)
+    private Long expiraEn;
+}
@@ -11,7 +11,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "usuarios")
+// Índices creados en db/migration (V2, V4); se declaran aquí como documentación. El login usa la clave única de correo
+@Table(name = "usuarios", indexes = {
+        @Index(name = "idx_usuarios_activo_rol_id", columnList = "activo, rol, id")
+})
 public class Usuario {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,4 +37,14 @@ public class Usuario {
     
     @Column(name = "activo", nullable = false)
     private Boolean activo = true;
+    
+    // Última escritura de la fila; base de Last-Modified / If-Modified-Since. Nula en filas anteriores a la columna.
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+    
+    @PrePersist
+    @PreUpdate
+    void marcarActualizacion() {
+        fechaActualizacion = LocalDateTime.now();
+    }
 }
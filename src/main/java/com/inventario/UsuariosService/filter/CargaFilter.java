@@ -0,0 +1,84 @@
+package com.inventario.UsuariosService.filter;
+
+import com.inventario.UsuariosService.service.MonitorCarga;
+import com.inventario.UsuariosService.service.MonitorCarga.Prioridad;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Control de admisión por prioridad antes de la cadena de seguridad: con la instancia cargada se
+ * rechazan primero los listados de administración y, saturada, el resto salvo login, refresh,
+ * /internal y salud, que nunca se rechazan aquí. También alimenta la latencia media de MonitorCarga.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class CargaFilter extends OncePerRequestFilter {
+
+    private static final String RETRY_AFTER_SEGUNDOS = "2";
+
+    private final MonitorCarga monitorCarga;
+
+    public CargaFilter(MonitorCarga monitorCarga) {
+        this.monitorCarga = monitorCarga;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain chain)
+            throws ServletException, IOException {
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        Prioridad prioridad = prioridad(request.getMethod(), ruta);
+        if (!monitorCarga.admite(prioridad)) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SEGUNDOS);
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Servicio sobrecargado");
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // Los listados y streams largos y los sondeos de salud no representan la latencia normal
+            if (prioridad != Prioridad.BAJA && !excluidaDeLatencia(ruta) && !request.isAsyncStarted()) {
+                monitorCarga.registrarLatencia(System.nanoTime() - inicio);
+            }
+        }
+    }
+
+    static Prioridad prioridad(String metodo, String ruta) {
+        if (ruta.startsWith("/api/usuarios/internal/")
+                || ruta.equals("/api/usuarios/login")
+                || ruta.equals("/api/usuarios/refresh")
+                || ruta.startsWith("/.well-known/")
+                || ruta.startsWith("/actuator/")
+                || ruta.equals("/health")
+                || ruta.equals("/api/usuarios/health")) {
+            return Prioridad.ALTA;
+        }
+        if (ruta.equals("/api/usuarios/import")
+                || ("GET".equals(metodo) && (ruta.equals("/api/usuarios")
+                        || ruta.equals("/api/usuarios/pagina")
+                        || ruta.equals("/api/usuarios/stream")
+                        || ruta.equals("/api/usuarios/search")))) {
+            return Prioridad.BAJA;
+        }
+        return Prioridad.NORMAL;
+    }
+
+    private static boolean excluidaDeLatencia(String ruta) {
+        return ruta.startsWith("/api/usuarios/internal/changes")
+                || ruta.startsWith("/actuator/")
+                || ruta.equals("/health")
+                || ruta.equals("/api/usuarios/health");
+    }
+}
@@ -1,28 +1,106 @@
 package com.inventario.UsuariosService.filter;
 
+import com.inventario.UsuariosService.service.RevocacionTokenService;
+import com.inventario.UsuariosService.util.JwtClaims;
 import com.inventario.UsuariosService.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.lang.NonNull;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Autentica las peticiones con "Authorization: Bearer". El camino caliente no crea más objetos
+ * que el UsuarioAutenticado: las rutas públicas se saltan sin mirar la cabecera, los claims salen
+ * de la caché de JwtUtil y las listas de autoridades se crean una vez por rol.
+ */
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+    // Rutas con permitAll en SecurityConfig; el filtro no autentica en ellas. "/**" incluye la propia base.
+    // Las de actuator solo se sirven en el puerto de gestión (management.server.port).
+    public static final String[] RUTAS_PUBLICAS = {
+            "/api/usuarios/login", "/api/usuarios/refresh", "/health", "/api/usuarios/health",
+            "/api/usuarios/init-admin", "/api/usuarios/first",
+            "/.well-known/jwks.json", "/actuator/health/**", "/actuator/prometheus"
+    };
+
+    private static final String ATRIBUTO_FILTRADO = JwtRequestFilter.class.getName() + ".FILTERED";
+
+    private static final Set<String> PUBLICAS_EXACTAS;
+    private static final String[] PUBLICAS_PREFIJOS;
+
+    static {
+        List<String> exactas = new ArrayList<>();
+        List<String> prefijos = new ArrayList<>();
+        for (String ruta : RUTAS_PUBLICAS) {
+            if (ruta.endsWith("/**")) {
+                String base = ruta.substring(0, ruta.length() - 3);
+                exactas.add(base);
+                prefijos.add(base + "/");
+            } else {
+                exactas.add(ruta);
+            }
+        }
+        PUBLICAS_EXACTAS = Set.copyOf(exactas);
+        PUBLICAS_PREFIJOS = prefijos.toArray(new String[0]);
+    }
+
     private final JwtUtil jwtUtil;
+    private final RevocacionTokenService revocacionTokenService;
+    // Tiempo de parseo/verificación por resultado; registrados una vez para no crearlos por petición
+    private final Timer verificacionValida;
+    private final Timer verificacionInvalida;
+    private final Timer verificacionRevocada;
+    // Autoridades compartidas por rol; los roles vienen de tokens firmados, así que son pocos
+    private final Map<String, List<GrantedAuthority>> autoridadesPorRol = new ConcurrentHashMap<>();
 
-    public JwtRequestFilter(JwtUtil jwtUtil) {
+    public JwtRequestFilter(JwtUtil jwtUtil, RevocacionTokenService revocacionTokenService, MeterRegistry meterRegistry) {
         this.jwtUtil = jwtUtil;
+        this.revocacionTokenService = revocacionTokenService;
+        this.verificacionValida = Timer.builder("jwt.filter").tag("resultado", "valido").register(meterRegistry);
+        this.verificacionInvalida = Timer.builder("jwt.filter").tag("resultado", "invalido").register(meterRegistry);
+        this.verificacionRevocada = Timer.builder("jwt.filter").tag("resultado", "revocado").register(meterRegistry);
+    }
+
+    static boolean esPublica(String ruta) {
+        if (PUBLICAS_EXACTAS.contains(ruta)) {
+            return true;
+        }
+        for (String prefijo : PUBLICAS_PREFIJOS) {
+            if (ruta.startsWith(prefijo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        // Sin contexto la subcadena devuelve la misma URI, sin copiarla
+        return esPublica(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    // La implementación base concatena el nombre del filtro en cada petición
+    @Override
+    protected String getAlreadyFilteredAttributeName() {
+        return ATRIBUTO_FILTRADO;
     }
 
     @Override
@@ -30,44 +108,41 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
 
         final String requestTokenHeader = request.getHeader("Authorization");
-
-        String correo = null;
-        String jwtToken = null;
+        SecurityContext contexto = SecurityContextHolder.getContext();
 
         // JWT Token está en la forma "Bearer token"
-        if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
-            try {
-                correo = jwtUtil.extractCorreo(jwtToken);
-            } catch (Exception e) {
-                logger.warn("No se pudo obtener el correo del JWT Token");
+        if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")
+                && contexto.getAuthentication() == null) {
+            JwtClaims claims = verificar(requestTokenHeader.substring(7));
+            if (claims != null && claims.correo() != null) {
+                contexto.setAuthentication(new UsuarioAutenticado(claims.correo(), claims.nombre(), claims.rol(),
+                        autoridadesPorRol.computeIfAbsent(String.valueOf(claims.rol()),
+                                rol -> List.of(new SimpleGrantedAuthority("ROLE_" + rol)))));
             }
         }
+        chain.doFilter(request, response);
+    }
 
-        // Una vez que obtenemos el token, validamos
-        if (correo != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            
-            // Validar token
-            if (jwtUtil.validateToken(jwtToken, correo)) {
-                
-                String rol = jwtUtil.extractRol(jwtToken);
-                String nombre = jwtUtil.extractNombre(jwtToken);
-                
-                // Crear autoridades basadas en el rol
-                List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + rol));
-                
-                UsernamePasswordAuthenticationToken authToken = 
-                    new UsernamePasswordAuthenticationToken(correo, null, authorities);
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                
-                // Agregar información adicional del usuario al contexto
-                request.setAttribute("usuarioNombre", nombre);
-                request.setAttribute("usuarioRol", rol);
-                request.setAttribute("usuarioCorreo", correo);
-                
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+    // Claims del token si es válido, no ha expirado y no está revocado; null en otro caso
+    private JwtClaims verificar(String jwtToken) {
+        long inicio = System.nanoTime();
+        Timer resultado = verificacionInvalida;
+        JwtClaims claims = null;
+        try {
+            // Un único parseo y verificación de firma por token (cacheado en JwtUtil)
+            claims = jwtUtil.extractClaims(jwtToken);
+            if (claims.isExpirado()) {
+                claims = null;
+            } else if (revocacionTokenService.isRevocado(claims)) {
+                claims = null;
+                resultado = verificacionRevocada;
+            } else {
+                resultado = verificacionValida;
             }
+        } catch (Exception e) {
+            logger.warn("No se pudo obtener el correo del JWT Token");
         }
-        chain.doFilter(request, response);
+        resultado.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        return claims;
     }
 }
@@ -0,0 +1,85 @@
+package com.inventario.UsuariosService.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Autentica a los otros microservicios en /api/usuarios/internal/** con la cabecera X-Service-Token.
+ * Es opcional: sin usuarios.internal.tokens los endpoints internos siguen abiertos como hasta ahora.
+ * Con tokens configurados (separados por comas, para poder rotarlos) solo se atiende a quien envíe
+ * uno de ellos, que recibe el rol SERVICIO.
+ */
+@Component
+public class TokenServicioFilter extends OncePerRequestFilter {
+    public static final String CABECERA = "X-Service-Token";
+    public static final String RUTAS_INTERNAS = "/api/usuarios/internal/**";
+    private static final String PREFIJO_INTERNO = "/api/usuarios/internal/";
+
+    private static final Authentication SERVICIO = UsernamePasswordAuthenticationToken.authenticated(
+            "servicio", null, List.of(new SimpleGrantedAuthority("ROLE_SERVICIO")));
+
+    private final List<byte[]> tokens;
+
+    public TokenServicioFilter(@Value("${usuarios.internal.tokens:}") String tokens) {
+        this.tokens = Arrays.stream(tokens.split(","))
+                .map(String::trim)
+                .filter(t -> !t.isEmpty())
+                .map(t -> t.getBytes(StandardCharsets.UTF_8))
+                .toList();
+        if (this.tokens.isEmpty()) {
+            logger.warn("usuarios.internal.tokens no configurado; /api/usuarios/internal/** no exige " + CABECERA);
+        }
+    }
+
+    // Regla de SecurityConfig para las rutas internas: rol SERVICIO solo si hay tokens configurados
+    public AuthorizationManager<RequestAuthorizationContext> autorizacion() {
+        if (tokens.isEmpty()) {
+            return (autenticacion, contexto) -> new AuthorizationDecision(true);
+        }
+        return AuthorityAuthorizationManager.hasRole("SERVICIO");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return tokens.isEmpty() || !request.getRequestURI().startsWith(PREFIJO_INTERNO, request.getContextPath().length());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain) throws ServletException, IOException {
+        String token = request.getHeader(CABECERA);
+        if (token != null && valido(token.getBytes(StandardCharsets.UTF_8))) {
+            SecurityContextHolder.getContext().setAuthentication(SERVICIO);
+        }
+        chain.doFilter(request, response);
+    }
+
+    // Comparación en tiempo constante contra cada token aceptado
+    private boolean valido(byte[] recibido) {
+        boolean valido = false;
+        for (byte[] token : tokens) {
+            valido |= MessageDigest.isEqual(token, recibido);
+        }
+        return valido;
+    }
+}
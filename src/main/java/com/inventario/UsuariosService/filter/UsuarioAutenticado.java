@@ -0,0 +1,52 @@
+package com.inventario.UsuariosService.filter;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+/**
+ * Usuario autenticado por JWT: es a la vez el Authentication del contexto y su principal.
+ * Inmutable; las autoridades son la lista compartida del rol, no una copia por petición.
+ * getName() devuelve el correo, como el principal anterior.
+ */
+public record UsuarioAutenticado(String correo, String nombre, String rol,
+                                 List<GrantedAuthority> autoridades) implements Authentication {
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return autoridades;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getDetails() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return this;
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return true;
+    }
+
+    @Override
+    public void setAuthenticated(boolean isAuthenticated) {
+        if (!isAuthenticated) {
+            throw new IllegalArgumentException("UsuarioAutenticado es inmutable");
+        }
+    }
+
+    @Override
+    public String getName() {
+        return correo;
+    }
+}
@@ -0,0 +1,9 @@
+package com.inventario.UsuariosService.repository;
+
+import com.inventario.UsuariosService.entity.RefreshToken;
+
+// Fragmento de RefreshTokenRepository: alta sin la lectura previa que hace save() con un id asignado
+public interface RefreshTokenInsercion {
+
+    void insertar(RefreshToken refreshToken);
+}
@@ -0,0 +1,19 @@
+package com.inventario.UsuariosService.repository;
+
+import com.inventario.UsuariosService.entity.RefreshToken;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+// save() sobre una entidad con id asignado hace merge (SELECT + INSERT); el hash siempre es nuevo, así que persist basta
+class RefreshTokenInsercionImpl implements RefreshTokenInsercion {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void insertar(RefreshToken refreshToken) {
+        entityManager.persist(refreshToken);
+    }
+}
@@ -0,0 +1,34 @@
+package com.inventario.UsuariosService.repository;
+
+import com.inventario.UsuariosService.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String>, RefreshTokenInsercion {
+
+    // Marca el token como usado solo si nadie lo ha usado antes: 1 fila = esta petición gana la rotación
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken r SET r.usado = true WHERE r.hash = :hash AND r.usado = false")
+    int marcarUsado(@Param("hash") String hash);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken r WHERE r.familia = :familia")
+    int deleteByFamilia(@Param("familia") String familia);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken r WHERE r.usuarioId = :usuarioId")
+    int deleteByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken r WHERE r.expiraEn <= :ahora")
+    int deleteExpirados(@Param("ahora") Long ahora);
+}
@@ -0,0 +1,21 @@
+package com.inventario.UsuariosService.repository;
+
+import com.inventario.UsuariosService.entity.RevocacionToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface RevocacionTokenRepository extends JpaRepository<RevocacionToken, String> {
+    List<RevocacionToken> findByExpiraEnGreaterThan(Long ahora);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevocacionToken r WHERE r.expiraEn <= :ahora")
+    int deleteExpiradas(@Param("ahora") Long ahora);
+}
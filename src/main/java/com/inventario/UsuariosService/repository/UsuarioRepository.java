@@ -1,15 +1,93 @@
 package com.inventario.UsuariosService.repository;
 
+import com.inventario.UsuariosService.dto.UsuarioResumen;
 import com.inventario.UsuariosService.entity.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+// Consultas en transacción de solo lectura (van a las réplicas si hay); las de escritura declaran la suya
 @Repository
+@Transactional(readOnly = true)
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     List<Usuario> findByActivoTrue();
     Optional<Usuario> findByCorreoAndActivoTrue(String correo);
-    
+
+    List<Usuario> findByCorreoIn(Collection<String> correos);
+
+    // Comprobación de existencia con LIMIT 1 en lugar de un count() de toda la tabla
+    boolean existsByIdNotNull();
+
+    // Sustituye el hash solo si no ha cambiado desde que se leyó (no pisa un cambio de contraseña concurrente).
+    // La fecha de actualización llega del reloj de la JVM, igual que en @PreUpdate, y no de CURRENT_TIMESTAMP
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuario u SET u.contrasena = :nuevo, u.fechaActualizacion = :ahora " +
+            "WHERE u.id = :id AND u.contrasena = :anterior")
+    int actualizarHashContrasena(@Param("id") Long id, @Param("anterior") String anterior, @Param("nuevo") String nuevo,
+                                 @Param("ahora") LocalDateTime ahora);
+
+    // Actualización parcial sin cargar la entidad: un parámetro nulo deja la columna como está
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuario u SET u.nombre = COALESCE(:nombre, u.nombre), u.correo = COALESCE(:correo, u.correo), " +
+            "u.rol = COALESCE(:rol, u.rol), u.activo = COALESCE(:activo, u.activo), " +
+            "u.fechaActualizacion = :ahora WHERE u.id = :id")
+    int actualizarParcial(@Param("id") Long id, @Param("nombre") String nombre, @Param("correo") String correo,
+                          @Param("rol") String rol, @Param("activo") Boolean activo,
+                          @Param("ahora") LocalDateTime ahora);
+
+    // A diferencia de deleteById, no carga la entidad antes de borrarla
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Usuario u WHERE u.id = :id")
+    int eliminarPorId(@Param("id") Long id);
+
+    @Query("SELECT u.correo FROM Usuario u WHERE u.correo IN :correos")
+    List<String> findCorreosExistentes(@Param("correos") Collection<String> correos);
+
+    @Query("SELECT u.correo FROM Usuario u WHERE u.activo = true")
+    List<String> findCorreosActivos();
+
+    // Paginación por clave (seek por id): el coste no crece con el número de página
+    @Query("SELECT new com.inventario.UsuariosService.dto.UsuarioResumen(u.id, u.nombre, u.correo, u.rol, u.fechaRegistro, u.activo) " +
+           "FROM Usuario u WHERE u.id > :despuesDe " +
+           "AND (:rol IS NULL OR u.rol = :rol) AND (:activo IS NULL OR u.activo = :activo) ORDER BY u.id")
+    List<UsuarioResumen> findResumenDespuesDe(@Param("despuesDe") Long despuesDe,
+                                              @Param("rol") String rol,
+                                              @Param("activo") Boolean activo,
+                                              Pageable pageable);
+
+    // Búsqueda sin el índice en memoria: recorre la tabla y ordena primero los que empiezan por el texto
+    // (al inicio del nombre, de una de sus palabras o del correo). Los patrones usan '!' como escape.
+    @Query("SELECT new com.inventario.UsuariosService.dto.UsuarioResumen(u.id, u.nombre, u.correo, u.rol, u.fechaRegistro, u.activo) " +
+           "FROM Usuario u WHERE (LOWER(u.nombre) LIKE :contiene ESCAPE '!' OR LOWER(u.correo) LIKE :contiene ESCAPE '!') " +
+           "AND (:rol IS NULL OR u.rol = :rol) AND (:activo IS NULL OR u.activo = :activo) " +
+           "ORDER BY CASE WHEN LOWER(u.nombre) LIKE :inicio ESCAPE '!' OR LOWER(u.nombre) LIKE :palabra ESCAPE '!' " +
+           "OR LOWER(u.correo) LIKE :inicio ESCAPE '!' THEN 0 ELSE 1 END, u.id")
+    List<UsuarioResumen> buscarResumen(@Param("contiene") String contiene,
+                                       @Param("inicio") String inicio,
+                                       @Param("palabra") String palabra,
+                                       @Param("rol") String rol,
+                                       @Param("activo") Boolean activo,
+                                       Pageable pageable);
+
+    // Recorrido completo en streaming; requiere useCursorFetch=true en la URL de MySQL para no cargar todo el resultado
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.inventario.UsuariosService.dto.UsuarioResumen(u.id, u.nombre, u.correo, u.rol, u.fechaRegistro, u.activo) " +
+           "FROM Usuario u WHERE (:rol IS NULL OR u.rol = :rol) AND (:activo IS NULL OR u.activo = :activo) ORDER BY u.id")
+    Stream<UsuarioResumen> streamResumen(@Param("rol") String rol, @Param("activo") Boolean activo);
 }
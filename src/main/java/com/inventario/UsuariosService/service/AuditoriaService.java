@@ -0,0 +1,181 @@
+package com.inventario.UsuariosService.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de eventos de login y de cambios sobre usuarios fuera del camino de la petición.
+ * Los hilos de petición publican en un anillo acotado sin bloqueos (un CAS por evento) y un único
+ * hilo escritor lo vacía e inserta por lotes en eventos_auditoria. Si el anillo está lleno o la base
+ * de datos no responde, los eventos se descartan y se cuentan: la auditoría nunca frena el login.
+ */
+@Service
+public class AuditoriaService {
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO eventos_auditoria (tipo, correo, usuario_id, ip, detalle, fecha) VALUES (?, ?, ?, ?, ?, ?)";
+
+    public enum TipoEvento {
+        LOGIN_OK, LOGIN_FALLIDO, LOGIN_INACTIVO, LOGIN_SATURADO, LOGIN_LIMITADO, LOGIN_ERROR, LOGOUT,
+        USUARIO_CREADO, USUARIO_ACTUALIZADO, USUARIO_ELIMINADO, USUARIO_ACTIVADO, USUARIO_DESACTIVADO,
+        CONTRASENA_CAMBIADA
+    }
+
+    public record Evento(TipoEvento tipo, String correo, Long usuarioId, String ip, String detalle, long fecha) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int capacidad;
+    private final int tamanoLote;
+    private final long esperaNanos;
+
+    // Anillo multi-productor / un consumidor. "escritura" solo avanza por CAS de los productores y
+    // "lectura" solo la avanza el escritor; una ranura nula en "lectura" es un evento aún sin publicar.
+    private final AtomicReferenceArray<Evento> anillo;
+    private final AtomicLong escritura = new AtomicLong();
+    private final AtomicLong lectura = new AtomicLong();
+
+    private final Counter encolados;
+    private final Counter descartados;
+    private final Counter errores;
+    private final Timer escrituraTimer;
+
+    private volatile boolean activo;
+    private Thread escritor;
+
+    public AuditoriaService(JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${auditoria.buffer-size:8192}") int capacidad,
+                            @Value("${auditoria.batch-size:500}") int tamanoLote,
+                            @Value("${auditoria.flush-ms:200}") long esperaMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacidad = capacidad;
+        this.tamanoLote = tamanoLote;
+        this.esperaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMillis);
+        this.anillo = new AtomicReferenceArray<>(capacidad);
+        this.encolados = Counter.builder("auditoria.eventos").tag("resultado", "encolado").register(meterRegistry);
+        this.descartados = Counter.builder("auditoria.eventos").tag("resultado", "descartado").register(meterRegistry);
+        this.errores = Counter.builder("auditoria.eventos").tag("resultado", "error").register(meterRegistry);
+        this.escrituraTimer = Timer.builder("auditoria.escritura").register(meterRegistry);
+        Gauge.builder("auditoria.pendientes", this, AuditoriaService::pendientes).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        activo = true;
+        escritor = new Thread(this::vaciarEnBucle, "auditoria-escritor");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    public void registrar(TipoEvento tipo, String correo, Long usuarioId, String ip, String detalle) {
+        publicar(new Evento(tipo, correo, usuarioId, ip, detalle, System.currentTimeMillis()));
+    }
+
+    public void registrar(TipoEvento tipo, String correo, Long usuarioId) {
+        registrar(tipo, correo, usuarioId, null, null);
+    }
+
+    // Nunca bloquea: si no hay hueco el evento se descarta
+    public boolean publicar(Evento evento) {
+        long posicion;
+        do {
+            posicion = escritura.get();
+            if (posicion - lectura.get() >= capacidad) {
+                descartados.increment();
+                return false;
+            }
+        } while (!escritura.compareAndSet(posicion, posicion + 1));
+        anillo.lazySet(indice(posicion), evento);
+        encolados.increment();
+        return true;
+    }
+
+    public long pendientes() {
+        return escritura.get() - lectura.get();
+    }
+
+    private void vaciarEnBucle() {
+        while (activo) {
+            if (vaciar() == 0) {
+                LockSupport.parkNanos(esperaNanos);
+            }
+        }
+        // Lo que quede al parar se escribe antes de cerrar el contexto
+        while (vaciar() > 0) {
+            // seguir hasta vaciar el anillo
+        }
+    }
+
+    // Extrae hasta un lote del anillo y lo inserta con un solo batch JDBC
+    private int vaciar() {
+        List<Evento> lote = new ArrayList<>(Math.min(tamanoLote, (int) Math.max(pendientes(), 1)));
+        long posicion = lectura.get();
+        while (lote.size() < tamanoLote) {
+            int i = indice(posicion);
+            Evento evento = anillo.get(i);
+            if (evento == null) {
+                break;
+            }
+            anillo.lazySet(i, null);
+            lote.add(evento);
+            posicion++;
+        }
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        lectura.set(posicion);
+        escribir(lote);
+        return lote.size();
+    }
+
+    private void escribir(List<Evento> lote) {
+        List<Object[]> parametros = new ArrayList<>(lote.size());
+        for (Evento e : lote) {
+            parametros.add(new Object[]{e.tipo().name(), recortar(e.correo(), 150), e.usuarioId(),
+                    recortar(e.ip(), 45), recortar(e.detalle(), 255), e.fecha()});
+        }
+        try {
+            escrituraTimer.record(() -> jdbcTemplate.batchUpdate(INSERT_SQL, parametros));
+        } catch (DataAccessException e) {
+            // Sin reintentos: reintentar acumularía presión sobre una base de datos que ya está fallando
+            errores.increment(lote.size());
+            logger.warn("No se pudieron guardar {} eventos de auditoría: {}", lote.size(), e.getMessage());
+        }
+    }
+
+    private int indice(long posicion) {
+        return (int) (posicion % capacidad);
+    }
+
+    private static String recortar(String valor, int max) {
+        return valor == null || valor.length() <= max ? valor : valor.substring(0, max);
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        activo = false;
+        if (escritor != null) {
+            LockSupport.unpark(escritor);
+            escritor.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
@@ -0,0 +1,574 @@
+package com.inventario.UsuariosService.service;
+
+import com.inventario.UsuariosService.dto.CambioUsuario;
+import com.inventario.UsuariosService.dto.UsuarioResumen;
+import com.inventario.UsuariosService.entity.Usuario;
+import com.inventario.UsuariosService.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria para buscar usuarios por fragmentos de nombre o correo, con filtros de rol y activo.
+ * <p>
+ * Cada usuario ocupa una posición (documento) y cada clave apunta a la lista ordenada de documentos
+ * que la contienen. Claves: los trigramas de nombre y correo normalizados, los prefijos de 1 a 3
+ * caracteres de cada palabra (separadas por cualquier carácter no alfanumérico), el rol y activo.
+ * Primero se buscan coincidencias al inicio de palabra y después, si faltan y q tiene 3 o más
+ * caracteres, en medio. Cada fase intersecta las listas que aplican empezando por la más corta,
+ * compara el texto solo de los documentos que quedan y se corta al llegar al límite o a
+ * max-candidatos.
+ * <p>
+ * Un documento nunca cambia: modificar un usuario deja vacía su posición anterior y añade uno nuevo
+ * al final, así que las listas solo crecen por el final y las entradas obsoletas se descartan al
+ * comprobar cada candidato. Cuando las posiciones vacías pasan de la cuarta parte se reconstruye el
+ * índice. Las lecturas no bloquean; las escrituras (UsuarioService en esta instancia y el registro
+ * de cambios para las de otras instancias) se serializan con un lock.
+ * <p>
+ * Ocupa unos 450 bytes por usuario: ~45 MB con el límite por defecto de 100.000 y 400-500 MB con un millón. Se puede desactivar
+ * (usuarios.busqueda.enabled=false) y deja de mantenerse al pasar de max-usuarios; en ambos casos, y
+ * mientras se carga, UsuarioService busca en la base de datos.
+ */
+@Component
+public class BusquedaUsuariosIndex {
+    private static final Logger logger = LoggerFactory.getLogger(BusquedaUsuariosIndex.class);
+
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final int LOTE_CAMBIOS = 5000;
+
+    public record Resultado(List<UsuarioResumen> usuarios, boolean truncado) {
+    }
+
+    private final UsuarioRepository usuarioRepository;
+    private final CambiosUsuarioService registroCambios;
+    private final TransactionTemplate lectura;
+    private final boolean habilitado;
+    private final int maxUsuarios;
+    private final int maxCandidatos;
+    private final Timer busquedas;
+    private final Object lock = new Object();
+
+    // null hasta la primera carga completa
+    private volatile Estado estado;
+    // Última versión del registro de cambios aplicada (protegido por lock)
+    private long version;
+    // Superó max-usuarios: no se vuelve a cargar hasta reiniciar con un límite mayor
+    private volatile boolean excedido;
+
+    public BusquedaUsuariosIndex(UsuarioRepository usuarioRepository,
+                                 CambiosUsuarioService registroCambios,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${usuarios.busqueda.enabled:true}") boolean habilitado,
+                                 @Value("${usuarios.busqueda.max-usuarios:100000}") int maxUsuarios,
+                                 @Value("${usuarios.busqueda.max-candidatos:50000}") int maxCandidatos) {
+        this.usuarioRepository = usuarioRepository;
+        this.registroCambios = registroCambios;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.habilitado = habilitado;
+        this.maxUsuarios = maxUsuarios;
+        this.maxCandidatos = maxCandidatos;
+        this.busquedas = Timer.builder("usuarios.busqueda").register(meterRegistry);
+        Gauge.builder("usuarios.busqueda.documentos", this, i -> i.estado != null ? i.estado.vivos : 0)
+                .register(meterRegistry);
+    }
+
+    public boolean cargado() {
+        return estado != null;
+    }
+
+    // Carga completa al arrancar; después solo aplica lo nuevo del registro de cambios
+    @Scheduled(fixedDelayString = "${usuarios.busqueda.sincronizar-ms:5000}")
+    public void sincronizar() {
+        if (!habilitado || excedido) {
+            return;
+        }
+        try {
+            if (estado == null) {
+                recargar();
+            }
+            aplicarRegistroCambios();
+            compactarSiHaceFalta();
+        } catch (Exception e) {
+            logger.warn("No se pudo sincronizar el índice de búsqueda: {}", e.getMessage());
+        }
+    }
+
+    // Versión y usuarios se leen en la misma transacción (misma instantánea, misma réplica)
+    private void recargar() {
+        lectura.executeWithoutResult(status -> {
+            long versionCarga = registroCambios.versionActual();
+            try (Stream<UsuarioResumen> usuarios = usuarioRepository.streamResumen(null, null)) {
+                cargar(usuarios.iterator(), versionCarga);
+            }
+        });
+        Estado cargado = estado;
+        if (cargado != null) {
+            logger.info("Índice de búsqueda cargado: {} usuarios", cargado.vivos);
+        }
+    }
+
+    // Construye el índice completo aparte y lo publica de una vez; version es la del registro de cambios
+    // en el momento de la lectura. Los cambios locales llegados mientras tanto se recuperan del registro.
+    public void cargar(Iterator<UsuarioResumen> usuarios, long version) {
+        Estado nuevo = construir(usuarios, maxUsuarios);
+        synchronized (lock) {
+            if (nuevo == null) {
+                descartarPorTamano();
+                return;
+            }
+            estado = nuevo;
+            this.version = version;
+        }
+    }
+
+    // Libera la memoria del índice; las búsquedas pasan a la base de datos (protegido por lock)
+    private void descartarPorTamano() {
+        estado = null;
+        excedido = true;
+        logger.warn("Índice de búsqueda desactivado: hay más de {} usuarios (usuarios.busqueda.max-usuarios)",
+                maxUsuarios);
+    }
+
+    // Reconstrucción en memoria con los documentos vigentes; bloquea a los escritores mientras dura
+    private void compactarSiHaceFalta() {
+        synchronized (lock) {
+            Estado e = estado;
+            if (e == null || e.total - e.vivos <= Math.max(1024, e.vivos / 4)) {
+                return;
+            }
+            List<UsuarioResumen> vigentes = new ArrayList<>(e.vivos);
+            Documento[] documentos = e.documentos;
+            for (int i = 0; i < e.total; i++) {
+                if (documentos[i] != null) {
+                    vigentes.add(documentos[i].usuario);
+                }
+            }
+            estado = construir(vigentes.iterator(), Integer.MAX_VALUE);
+            logger.debug("Índice de búsqueda compactado: {} posiciones vacías descartadas", e.total - e.vivos);
+        }
+    }
+
+    // null en cuanto pasa de maxUsuarios, sin llegar a ocupar la memoria del índice completo
+    private static Estado construir(Iterator<UsuarioResumen> usuarios, int maxUsuarios) {
+        Estado nuevo = new Estado(1024);
+        Map<Long, Acumulador> acumuladores = new HashMap<>();
+        while (usuarios.hasNext()) {
+            if (nuevo.total == maxUsuarios) {
+                return null;
+            }
+            Documento documento = Documento.de(usuarios.next());
+            int numero = nuevo.anadir(documento);
+            for (long clave : claves(documento)) {
+                acumuladores.computeIfAbsent(clave, c -> new Acumulador()).anadir(numero);
+            }
+        }
+        acumuladores.forEach((clave, a) -> nuevo.listas.put(clave, new Lista(a.datos, a.tamano)));
+        return nuevo;
+    }
+
+    private void aplicarRegistroCambios() {
+        int leidos;
+        do {
+            long desde;
+            synchronized (lock) {
+                desde = version;
+            }
+            List<CambioUsuario> cambios = registroCambios.listar(desde, LOTE_CAMBIOS);
+            synchronized (lock) {
+                for (CambioUsuario cambio : cambios) {
+                    if (cambio.correo() == null) {
+                        quitar(cambio.id());
+                    } else {
+                        poner(new UsuarioResumen(cambio.id(), cambio.nombre(), cambio.correo(), cambio.rol(),
+                                cambio.fechaRegistro(), cambio.activo()));
+                    }
+                    version = Math.max(version, cambio.version());
+                }
+            }
+            leidos = cambios.size();
+        } while (leidos == LOTE_CAMBIOS);
+    }
+
+    // Escrituras de UsuarioService: visibles en la búsqueda sin esperar a la sincronización
+    public void actualizar(Usuario u) {
+        if (u == null || u.getId() == null) {
+            return;
+        }
+        UsuarioResumen resumen = new UsuarioResumen(u.getId(), u.getNombre(), u.getCorreo(), u.getRol(),
+                u.getFechaRegistro(), u.getActivo());
+        synchronized (lock) {
+            poner(resumen);
+        }
+    }
+
+    public void eliminar(Long id) {
+        synchronized (lock) {
+            quitar(id);
+        }
+    }
+
+    // null si el índice no está cargado (desactivado, por encima de max-usuarios o cargando)
+    public Resultado buscar(String texto, String rol, Boolean activo, int limite) {
+        long inicio = System.nanoTime();
+        Estado e = estado;
+        if (e == null) {
+            return null;
+        }
+        String patron = normalizar(texto.trim());
+        Recolector recolector = new Recolector(patron, rol, activo, limite, maxCandidatos);
+        List<Lista> filtros = new ArrayList<>();
+        boolean posible = anadirLista(filtros, e, rol != null ? claveRol(rol) : null)
+                && anadirLista(filtros, e, activo != null ? claveActivo(activo) : null);
+        // Cualquier documento que contenga el patrón tiene todos sus trigramas
+        for (int i = 0; posible && i + 3 <= patron.length(); i++) {
+            posible = anadirLista(filtros, e, clave(patron, i, 3, false));
+        }
+        if (posible) {
+            // El array de documentos se lee después de las listas: ya contiene todo lo que estas indican
+            Documento[] documentos = e.documentos;
+            List<Lista> alInicio = new ArrayList<>(filtros);
+            boolean seguir = true;
+            if (anadirLista(alInicio, e, clave(patron, 0, Math.min(3, patron.length()), true))) {
+                seguir = recorrer(alInicio, documentos, recolector, true);
+            }
+            if (seguir && patron.length() >= 3) {
+                recorrer(filtros, documentos, recolector, false);
+            }
+        }
+        Resultado resultado = recolector.resultado();
+        busquedas.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        return resultado;
+    }
+
+    // false si la clave no tiene documentos (la intersección queda vacía); una clave null no filtra
+    private static boolean anadirLista(List<Lista> listas, Estado e, Long clave) {
+        if (clave == null) {
+            return true;
+        }
+        Lista lista = e.listas.get(clave);
+        if (lista != null) {
+            listas.add(lista);
+        }
+        return lista != null;
+    }
+
+    // Recorre la lista más corta y descarta con las demás (búsqueda galopante, los cursores solo avanzan)
+    // antes de comparar texto. false si el recolector ya no necesita más candidatos.
+    private static boolean recorrer(List<Lista> listas, Documento[] documentos, Recolector recolector,
+                                    boolean alInicio) {
+        if (listas.isEmpty()) {
+            return true;
+        }
+        listas = new ArrayList<>(listas);
+        listas.sort(Comparator.comparingInt(Lista::tamano));
+        Lista guia = listas.get(0);
+        int[] cursores = new int[listas.size()];
+        siguiente:
+        for (int i = 0; i < guia.tamano; i++) {
+            if (!recolector.contar()) {
+                return false;
+            }
+            int numero = guia.datos[i];
+            for (int k = 1; k < listas.size(); k++) {
+                Lista lista = listas.get(k);
+                int cursor = avanzar(lista, cursores[k], numero);
+                if (cursor == lista.tamano) {
+                    return true;
+                }
+                cursores[k] = cursor;
+                if (lista.datos[cursor] != numero) {
+                    continue siguiente;
+                }
+            }
+            if (!recolector.examinar(documentos[numero], alInicio)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Primera posición desde "desde" con valor >= objetivo, o tamano si no hay
+    private static int avanzar(Lista lista, int desde, int objetivo) {
+        int bajo = desde;
+        int alto = desde;
+        int paso = 1;
+        while (alto < lista.tamano && lista.datos[alto] < objetivo) {
+            bajo = alto + 1;
+            alto += paso;
+            paso <<= 1;
+        }
+        int posicion = Arrays.binarySearch(lista.datos, bajo, Math.min(alto + 1, lista.tamano), objetivo);
+        return posicion >= 0 ? posicion : -posicion - 1;
+    }
+
+    // Alta o modificación: el documento anterior, si lo hay, queda vacío y el nuevo va al final. En ese orden:
+    // quien encuentre el nuevo en una lista ya ve vacía la posición anterior y no devuelve el usuario dos
+    // veces (una búsqueda concurrente puede, como mucho, no verlo durante la modificación)
+    private void poner(UsuarioResumen usuario) {
+        Estado e = estado;
+        if (e == null) {
+            return;
+        }
+        Integer anterior = e.porId.get(usuario.id());
+        if (anterior != null && usuario.equals(e.documentos[anterior].usuario)) {
+            return;
+        }
+        if (anterior == null && e.vivos >= maxUsuarios) {
+            descartarPorTamano();
+            return;
+        }
+        if (anterior != null) {
+            e.vaciar(anterior);
+        }
+        Documento documento = Documento.de(usuario);
+        int numero = e.anadir(documento);
+        for (long c : claves(documento)) {
+            e.listas.put(c, Lista.anadir(e.listas.get(c), numero));
+        }
+    }
+
+    private void quitar(Long id) {
+        Estado e = estado;
+        if (e == null || id == null) {
+            return;
+        }
+        Integer numero = e.porId.remove(id);
+        if (numero != null) {
+            e.vaciar(numero);
+        }
+    }
+
+    // Trigramas de nombre y correo, prefijos de cada palabra, rol y activo; distintas y ordenadas
+    private static long[] claves(Documento d) {
+        long[] claves = new long[4 * (d.nombre.length() + d.correo.length()) + 2];
+        int n = anadirClaves(d.nombre, claves, 0);
+        n = anadirClaves(d.correo, claves, n);
+        if (d.usuario.rol() != null) {
+            claves[n++] = claveRol(d.usuario.rol());
+        }
+        if (d.usuario.activo() != null) {
+            claves[n++] = claveActivo(d.usuario.activo());
+        }
+        Arrays.sort(claves, 0, n);
+        int distintas = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || claves[i] != claves[i - 1]) {
+                claves[distintas++] = claves[i];
+            }
+        }
+        return Arrays.copyOf(claves, distintas);
+    }
+
+    private static int anadirClaves(String s, long[] claves, int n) {
+        for (int i = 0; i < s.length(); i++) {
+            if (i + 3 <= s.length()) {
+                claves[n++] = clave(s, i, 3, false);
+            }
+            if (inicioDePalabra(s, i)) {
+                for (int largo = 1; largo <= 3 && i + largo <= s.length(); largo++) {
+                    claves[n++] = clave(s, i, largo, true);
+                }
+            }
+        }
+        return n;
+    }
+
+    // Hasta 3 caracteres de 16 bits, su número y si es prefijo de palabra
+    private static long clave(String s, int i, int largo, boolean prefijo) {
+        long clave = (prefijo ? 1L << 50 : 0L) | ((long) largo << 48) | ((long) s.charAt(i) << 32);
+        if (largo > 1) {
+            clave |= (long) s.charAt(i + 1) << 16;
+        }
+        if (largo > 2) {
+            clave |= s.charAt(i + 2);
+        }
+        return clave;
+    }
+
+    // Un choque de hash entre roles solo añade candidatos: el filtro se vuelve a comprobar en cada documento
+    private static long claveRol(String rol) {
+        return (1L << 51) | (rol.toUpperCase(Locale.ROOT).hashCode() & 0xFFFFFFFFL);
+    }
+
+    private static long claveActivo(boolean activo) {
+        return (1L << 52) | (activo ? 1 : 0);
+    }
+
+    private static boolean inicioDePalabra(String s, int i) {
+        return Character.isLetterOrDigit(s.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(s.charAt(i - 1)));
+    }
+
+    private static boolean empiezaPalabra(String s, String patron) {
+        for (int i = s.indexOf(patron); i >= 0; i = s.indexOf(patron, i + 1)) {
+            if (i == 0 || !Character.isLetterOrDigit(s.charAt(i - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Minúsculas y sin tildes, como se comparan las búsquedas; sin copia si ya está normalizado
+    static String normalizar(String s) {
+        if (s == null) {
+            return "";
+        }
+        String minusculas = s.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < minusculas.length(); i++) {
+            if (minusculas.charAt(i) > 0x7F) {
+                return DIACRITICOS.matcher(Normalizer.normalize(minusculas, Normalizer.Form.NFD)).replaceAll("");
+            }
+        }
+        return minusculas;
+    }
+
+    private record Documento(UsuarioResumen usuario, String nombre, String correo) {
+
+        static Documento de(UsuarioResumen u) {
+            return new Documento(u, normalizar(u.nombre()), normalizar(u.correo()));
+        }
+    }
+
+    // Lista inmutable de documentos en orden creciente. Los documentos nuevos siempre tienen el número
+    // mayor, así que se añaden al final reutilizando el array mientras cabe: una lista ya publicada
+    // nunca lee más allá de su tamano.
+    private record Lista(int[] datos, int tamano) {
+
+        static Lista anadir(Lista lista, int numero) {
+            if (lista == null) {
+                return new Lista(new int[]{numero, 0, 0, 0}, 1);
+            }
+            int[] datos = lista.datos;
+            if (lista.tamano == datos.length) {
+                datos = Arrays.copyOf(datos, datos.length * 2);
+            }
+            datos[lista.tamano] = numero;
+            return new Lista(datos, lista.tamano + 1);
+        }
+    }
+
+    private static final class Acumulador {
+        private int[] datos = new int[4];
+        private int tamano;
+
+        void anadir(int numero) {
+            if (tamano == datos.length) {
+                datos = Arrays.copyOf(datos, tamano * 2);
+            }
+            datos[tamano++] = numero;
+        }
+    }
+
+    // Documentos por posición y listas por clave; porId, vivos y las posiciones solo los toca el escritor
+    private static final class Estado {
+        private final Map<Long, Lista> listas = new ConcurrentHashMap<>();
+        private final Map<Long, Integer> porId = new HashMap<>();
+        private volatile Documento[] documentos;
+        private volatile int total;
+        private volatile int vivos;
+
+        Estado(int capacidad) {
+            this.documentos = new Documento[capacidad];
+        }
+
+        // La posición se escribe antes de publicar el array y el total, y antes de añadirla a las listas
+        int anadir(Documento documento) {
+            Documento[] actuales = documentos;
+            if (total == actuales.length) {
+                actuales = Arrays.copyOf(actuales, actuales.length * 2);
+            }
+            int numero = total;
+            actuales[numero] = documento;
+            documentos = actuales;
+            total = numero + 1;
+            vivos++;
+            porId.put(documento.usuario.id(), numero);
+            return numero;
+        }
+
+        // Como en anadir, el cambio se publica volviendo a escribir el array volátil
+        void vaciar(int numero) {
+            Documento[] actuales = documentos;
+            actuales[numero] = null;
+            documentos = actuales;
+            vivos--;
+        }
+    }
+
+    private static final class Recolector {
+        private final String patron;
+        private final String rol;
+        private final Boolean activo;
+        private final int limite;
+        private final int maxCandidatos;
+        private final List<UsuarioResumen> usuarios = new ArrayList<>();
+        private int examinados;
+        private boolean truncado;
+
+        Recolector(String patron, String rol, Boolean activo, int limite, int maxCandidatos) {
+            this.patron = patron;
+            this.rol = rol;
+            this.activo = activo;
+            this.limite = limite;
+            this.maxCandidatos = maxCandidatos;
+        }
+
+        // Cada candidato de la lista guía cuenta para max-candidatos, pase o no la intersección
+        boolean contar() {
+            if (++examinados > maxCandidatos) {
+                truncado = true;
+                return false;
+            }
+            return true;
+        }
+
+        // false cuando ya no hace falta seguir. En la segunda fase se saltan los que entraron en la primera.
+        // Solo queda truncado si aparece una coincidencia más allá del límite.
+        boolean examinar(Documento d, boolean alInicio) {
+            if (d == null || !coincideFiltros(d.usuario)) {
+                return true;
+            }
+            boolean empieza = empiezaPalabra(d.nombre, patron) || empiezaPalabra(d.correo, patron);
+            boolean coincide = alInicio ? empieza
+                    : !empieza && (d.nombre.contains(patron) || d.correo.contains(patron));
+            if (coincide) {
+                if (usuarios.size() == limite) {
+                    truncado = true;
+                    return false;
+                }
+                usuarios.add(d.usuario);
+            }
+            return true;
+        }
+
+        private boolean coincideFiltros(UsuarioResumen u) {
+            return (rol == null || rol.equalsIgnoreCase(u.rol())) && (activo == null || activo.equals(u.activo()));
+        }
+
+        Resultado resultado() {
+            return new Resultado(usuarios, truncado);
+        }
+    }
+}
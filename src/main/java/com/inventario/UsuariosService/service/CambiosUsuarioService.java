@@ -0,0 +1,129 @@
+package com.inventario.UsuariosService.service;
+
+import com.inventario.UsuariosService.dto.CambioUsuario;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Registro versionado de cambios de usuarios (tabla cambios_usuarios) para que otros microservicios
+ * mantengan una copia local leyendo solo lo nuevo desde su última versión.
+ * <p>
+ * Cada escritura de UsuarioService reserva su versión al final de su propia transacción: el UPDATE
+ * sobre la única fila de cambios_usuarios_version la bloquea hasta el commit, así que las versiones
+ * se hacen visibles en orden y un consumidor nunca se salta una que se confirme más tarde.
+ * Las entradas devuelven el estado actual del usuario, no el de cada cambio; por eso se pueden
+ * compactar las antiguas de un mismo usuario sin que un consumidor atrasado pierda nada.
+ */
+@Service
+public class CambiosUsuarioService {
+    private static final Logger logger = LoggerFactory.getLogger(CambiosUsuarioService.class);
+
+    public enum Operacion {
+        GUARDADO, ELIMINADO
+    }
+
+    private static final String RESERVAR_SQL = "UPDATE cambios_usuarios_version SET valor = valor + ? WHERE id = 1";
+    private static final String VERSION_SQL = "SELECT valor FROM cambios_usuarios_version WHERE id = 1";
+    private static final String INSERT_SQL =
+            "INSERT INTO cambios_usuarios (version, usuario_id, operacion, fecha) VALUES (?, ?, ?, ?)";
+    // Si el usuario ya no existe la entrada se publica como ELIMINADO, sea cual sea su operación
+    private static final String DESDE_SQL =
+            "SELECT c.version, c.usuario_id, c.operacion, u.nombre, u.correo, u.rol, u.fecha_registro, u.activo " +
+            "FROM cambios_usuarios c LEFT JOIN usuarios u ON u.id = c.usuario_id " +
+            "WHERE c.version > ? ORDER BY c.version LIMIT ?";
+    // Borra las entradas con más antigüedad que la retención que tienen otra posterior del mismo usuario.
+    // SQL estándar (también H2); la tabla derivada evita el error 1093 de MySQL al leer la tabla que se borra
+    private static final String COMPACTAR_SQL =
+            "DELETE FROM cambios_usuarios WHERE version IN (SELECT version FROM (" +
+            "SELECT c.version FROM cambios_usuarios c WHERE c.fecha < ? AND EXISTS (" +
+            "SELECT 1 FROM cambios_usuarios d WHERE d.usuario_id = c.usuario_id AND d.version > c.version)" +
+            ") superadas)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long retencionMillis;
+
+    public CambiosUsuarioService(JdbcTemplate jdbcTemplate,
+                                 @Value("${usuarios.cambios.retencion-ms:604800000}") long retencionMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retencionMillis = retencionMillis;
+    }
+
+    // Debe llamarse dentro de la transacción de la escritura y como último paso, para bloquear la
+    // fila de versiones el menor tiempo posible
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(Operacion operacion, Long usuarioId) {
+        registrar(operacion, List.of(usuarioId));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(Operacion operacion, List<Long> usuarioIds) {
+        if (usuarioIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(RESERVAR_SQL, usuarioIds.size());
+        long version = jdbcTemplate.queryForObject(VERSION_SQL, Long.class) - usuarioIds.size();
+        long ahora = System.currentTimeMillis();
+        List<Object[]> filas = new ArrayList<>(usuarioIds.size());
+        for (Long id : usuarioIds) {
+            filas.add(new Object[]{++version, id, operacion.name(), ahora});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, filas);
+    }
+
+    // Última versión asignada; dentro de una transacción de lectura es coherente con lo que esta lee
+    @Transactional(readOnly = true)
+    public long versionActual() {
+        return jdbcTemplate.queryForObject(VERSION_SQL, Long.class);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CambioUsuario> listar(long desde, int limite) {
+        List<CambioUsuario> cambios = new ArrayList<>();
+        recorrer(desde, limite, cambios::add);
+        return cambios;
+    }
+
+    // Entrega las entradas fila a fila, en orden de versión
+    @Transactional(readOnly = true)
+    public void recorrer(long desde, int limite, Consumer<CambioUsuario> consumidor) {
+        jdbcTemplate.query(DESDE_SQL, (RowCallbackHandler) rs -> consumidor.accept(mapear(rs)), desde, limite);
+    }
+
+    @Scheduled(fixedDelayString = "${usuarios.cambios.compactar-ms:3600000}")
+    public void compactar() {
+        try {
+            int borradas = jdbcTemplate.update(COMPACTAR_SQL, System.currentTimeMillis() - retencionMillis);
+            if (borradas > 0) {
+                logger.info("Registro de cambios compactado: {} entradas", borradas);
+            }
+        } catch (Exception e) {
+            logger.warn("No se pudo compactar el registro de cambios: {}", e.getMessage());
+        }
+    }
+
+    private static CambioUsuario mapear(ResultSet rs) throws SQLException {
+        long version = rs.getLong(1);
+        Long id = rs.getLong(2);
+        String correo = rs.getString(5);
+        if (correo == null || Operacion.ELIMINADO.name().equals(rs.getString(3))) {
+            return new CambioUsuario(version, id, Operacion.ELIMINADO.name(), null, null, null, null, null);
+        }
+        Timestamp fechaRegistro = rs.getTimestamp(7);
+        return new CambioUsuario(version, id, Operacion.GUARDADO.name(), rs.getString(4), correo, rs.getString(6),
+                fechaRegistro != null ? fechaRegistro.toLocalDateTime() : null, rs.getBoolean(8));
+    }
+}
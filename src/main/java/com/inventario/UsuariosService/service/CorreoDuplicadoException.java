@@ -0,0 +1,12 @@
+package com.inventario.UsuariosService.service;
+
+/**
+ * Se lanza cuando un alta o una actualización choca con la restricción única de correo.
+ * Se detecta por el error de la base de datos, sin consulta previa; los controladores la traducen a 400.
+ */
+public class CorreoDuplicadoException extends RuntimeException {
+
+    public CorreoDuplicadoException(String correo, Throwable cause) {
+        super("El correo ya existe: " + correo, cause);
+    }
+}
@@ -0,0 +1,159 @@
+package com.inventario.UsuariosService.service;
+
+import com.inventario.UsuariosService.dto.CambioUsuario;
+import com.inventario.UsuariosService.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Conjunto en memoria con los correos de usuarios activos.
+ * Permite descartar correos desconocidos sin consultar MySQL. Un falso positivo
+ * (correo que ya no existe) solo provoca la consulta normal a la base de datos;
+ * un negativo siempre es exacto respecto a la última recarga más los cambios locales y los del
+ * registro de cambios, que se aplica cada pocos segundos para recoger las altas y reactivaciones
+ * hechas en otras instancias sin esperar a la recarga completa.
+ */
+@Component
+public class CorreosActivosIndex {
+    private static final Logger logger = LoggerFactory.getLogger(CorreosActivosIndex.class);
+
+    private static final int LOTE_CAMBIOS = 5000;
+
+    private final UsuarioRepository usuarioRepository;
+    private final CambiosUsuarioService registroCambios;
+    private final Object lock = new Object();
+    private final Counter descartados;
+
+    private volatile Set<String> correos = ConcurrentHashMap.newKeySet();
+    private volatile boolean cargado = false;
+    // Última versión del registro de cambios aplicada (protegido por lock)
+    private long version;
+    // Cambios llegados mientras se recarga desde la base de datos (protegido por lock)
+    private List<Consumer<Set<String>>> cambiosDuranteRecarga;
+
+    public CorreosActivosIndex(UsuarioRepository usuarioRepository, CambiosUsuarioService registroCambios,
+                               MeterRegistry meterRegistry) {
+        this.usuarioRepository = usuarioRepository;
+        this.registroCambios = registroCambios;
+        this.descartados = Counter.builder("usuarios.correos.descartados").register(meterRegistry);
+        Gauge.builder("usuarios.correos.activos", this, i -> i.correos.size()).register(meterRegistry);
+    }
+
+    // Recarga completa al arrancar y periódicamente, para recoger altas hechas por otras instancias
+    @Scheduled(fixedDelayString = "${usuarios.correos-index.refresh-ms:60000}")
+    public void recargar() {
+        synchronized (lock) {
+            cambiosDuranteRecarga = new ArrayList<>();
+        }
+        Set<String> nuevo = ConcurrentHashMap.newKeySet();
+        long versionCarga;
+        try {
+            // La versión se lee antes que los correos: lo confirmado entre ambas lecturas se vuelve a
+            // aplicar desde el registro, y añadir o quitar un correo dos veces no cambia nada
+            versionCarga = registroCambios.versionActual();
+            for (String correo : usuarioRepository.findCorreosActivos()) {
+                nuevo.add(normalizar(correo));
+            }
+        } catch (Exception e) {
+            logger.warn("No se pudo recargar el índice de correos activos: {}", e.getMessage());
+            synchronized (lock) {
+                cambiosDuranteRecarga = null;
+            }
+            return;
+        }
+        synchronized (lock) {
+            cambiosDuranteRecarga.forEach(cambio -> cambio.accept(nuevo));
+            cambiosDuranteRecarga = null;
+            correos = nuevo;
+            version = versionCarga;
+            cargado = true;
+        }
+        logger.debug("Índice de correos activos recargado: {} entradas", nuevo.size());
+    }
+
+    // Altas, reactivaciones y bajas hechas en otras instancias desde la última versión aplicada.
+    // Las entradas ELIMINADO no traen el correo: se queda en el conjunto como falso positivo hasta la recarga.
+    @Scheduled(fixedDelayString = "${usuarios.correos-index.sincronizar-ms:1000}")
+    public void sincronizar() {
+        if (!cargado) {
+            return;
+        }
+        try {
+            int leidos;
+            do {
+                long desde;
+                synchronized (lock) {
+                    desde = version;
+                }
+                List<CambioUsuario> cambios = registroCambios.listar(desde, LOTE_CAMBIOS);
+                for (CambioUsuario cambio : cambios) {
+                    if (cambio.correo() != null) {
+                        if (Boolean.TRUE.equals(cambio.activo())) {
+                            agregar(cambio.correo());
+                        } else {
+                            eliminar(cambio.correo());
+                        }
+                    }
+                }
+                synchronized (lock) {
+                    for (CambioUsuario cambio : cambios) {
+                        version = Math.max(version, cambio.version());
+                    }
+                }
+                leidos = cambios.size();
+            } while (leidos == LOTE_CAMBIOS);
+        } catch (Exception e) {
+            logger.warn("No se pudo aplicar el registro de cambios al índice de correos: {}", e.getMessage());
+        }
+    }
+
+    // Devuelve false solo cuando se sabe con certeza que no hay usuario activo con ese correo
+    public boolean puedeExistir(String correo) {
+        if (correo == null) {
+            return false;
+        }
+        if (!cargado || correos.contains(normalizar(correo))) {
+            return true;
+        }
+        descartados.increment();
+        return false;
+    }
+
+    public void agregar(String correo) {
+        if (correo != null) {
+            aplicar(set -> set.add(normalizar(correo)));
+        }
+    }
+
+    public void eliminar(String correo) {
+        if (correo != null) {
+            aplicar(set -> set.remove(normalizar(correo)));
+        }
+    }
+
+    private void aplicar(Consumer<Set<String>> cambio) {
+        synchronized (lock) {
+            cambio.accept(correos);
+            if (cambiosDuranteRecarga != null) {
+                cambiosDuranteRecarga.add(cambio);
+            }
+        }
+    }
+
+    // MySQL compara correos sin distinguir mayúsculas, el índice hace lo mismo
+    private static String normalizar(String correo) {
+        return correo.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,82 @@
+package com.inventario.UsuariosService.service;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Ventana de read-your-writes por cliente: tras una escritura, sus lecturas van al primario para que
+ * no lea una réplica que aún no tiene el cambio; el resto de clientes sigue leyendo de las réplicas.
+ * El instante de la escritura viaja con el cliente (cabecera X-Ultima-Escritura y cookie del mismo
+ * valor), así que la ventana se respeta aunque la siguiente petición llegue a otra instancia.
+ * Fuera de una petición HTTP (tareas programadas, hilos del pool de hashing) no hay ventana.
+ * Sin réplicas configuradas no tiene efecto.
+ */
+@Component
+public class EscriturasRecientes {
+
+    public static final String CABECERA = "X-Ultima-Escritura";
+    static final String COOKIE = "usuarios_ultima_escritura";
+    private static final String ATRIBUTO = EscriturasRecientes.class.getName() + ".ULTIMA";
+
+    private final long ventanaMillis;
+
+    public EscriturasRecientes(@Value("${usuarios.datasource.read-your-writes-ms:2000}") long ventanaMillis) {
+        this.ventanaMillis = ventanaMillis;
+    }
+
+    // Marca la petición actual y devuelve el instante al cliente para sus siguientes peticiones
+    public void registrar() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes peticion)) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        boolean primera = peticion.getRequest().getAttribute(ATRIBUTO) == null;
+        peticion.getRequest().setAttribute(ATRIBUTO, ahora);
+        HttpServletResponse response = peticion.getResponse();
+        // En respuestas ya enviadas (streaming) la cabecera se pierde; la propia petición sigue marcada
+        if (response != null && !response.isCommitted()) {
+            response.setHeader(CABECERA, Long.toString(ahora));
+        }
+        // Una sola cookie por respuesta aunque la petición escriba varias veces (importación por bloques)
+        if (primera && response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(ahora));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (ventanaMillis + 999) / 1000));
+            response.addCookie(cookie);
+        }
+    }
+
+    public boolean dentroDeVentana() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes peticion)) {
+            return false;
+        }
+        long transcurrido = System.currentTimeMillis() - ultimaEscritura(peticion.getRequest());
+        // Un instante futuro (reloj del cliente o valor inventado) no alarga la ventana
+        return transcurrido >= 0 && transcurrido < ventanaMillis;
+    }
+
+    private static long ultimaEscritura(HttpServletRequest request) {
+        if (request.getAttribute(ATRIBUTO) instanceof Long propia) {
+            return propia;
+        }
+        String valor = request.getHeader(CABECERA);
+        if (valor == null && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE.equals(cookie.getName())) {
+                    valor = cookie.getValue();
+                }
+            }
+        }
+        try {
+            return valor != null ? Long.parseLong(valor.trim()) : 0L;
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.inventario.UsuariosService.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Logins fallidos recientes por cuenta, solo en memoria y por instancia.
+ * Cada contador caduca tras la ventana sin fallos nuevos y se reinicia con un login correcto.
+ * Al llegar a max-fallos la cuenta queda bloqueada en /login hasta que caduque su contador,
+ * aunque la contraseña sea correcta. A diferencia de LimitadorLogin, que acota el ritmo de
+ * intentos, esto acota los fallos seguidos que puede acumular una cuenta.
+ */
+@Component
+public class FallosLoginRegistro {
+
+    private final Cache<String, AtomicInteger> fallos;
+    private final long ventanaMillis;
+    private final int maxFallos;
+    private final Counter bloqueos;
+
+    public FallosLoginRegistro(MeterRegistry meterRegistry,
+                               @Value("${auditoria.fallos.ventana-segundos:900}") long ventanaSegundos,
+                               @Value("${auditoria.fallos.max-size:100000}") long maxSize,
+                               @Value("${auditoria.fallos.max-fallos:10}") int maxFallos) {
+        this.ventanaMillis = TimeUnit.SECONDS.toMillis(ventanaSegundos);
+        this.maxFallos = maxFallos;
+        this.bloqueos = Counter.builder("login.fallos.bloqueos").register(meterRegistry);
+        this.fallos = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ventanaSegundos))
+                .build();
+        meterRegistry.gauge("login.fallos.cuentas", fallos, c -> c.estimatedSize());
+    }
+
+    // Devuelve el número de fallos dentro de la ventana, incluido este
+    public int registrarFallo(String correo) {
+        if (correo == null) {
+            return 0;
+        }
+        String clave = UsuarioCache.normalizar(correo);
+        AtomicInteger contador = fallos.get(clave, k -> new AtomicInteger());
+        int total = contador.incrementAndGet();
+        // Reescribir la entrada reinicia la ventana desde el último fallo
+        fallos.put(clave, contador);
+        return total;
+    }
+
+    public int getFallos(String correo) {
+        if (correo == null) {
+            return 0;
+        }
+        AtomicInteger contador = fallos.getIfPresent(UsuarioCache.normalizar(correo));
+        return contador != null ? contador.get() : 0;
+    }
+
+    // 0 si la cuenta puede intentar el login; si no, milisegundos hasta que caduque su contador.
+    // Con max-fallos a 0 nunca bloquea y el registro solo alimenta la auditoría.
+    public long esperaMillis(String correo) {
+        if (maxFallos <= 0 || correo == null) {
+            return 0;
+        }
+        String clave = UsuarioCache.normalizar(correo);
+        AtomicInteger contador = fallos.getIfPresent(clave);
+        if (contador == null || contador.get() < maxFallos) {
+            return 0;
+        }
+        OptionalLong edad = fallos.policy().expireAfterWrite()
+                .map(p -> p.ageOf(clave, TimeUnit.MILLISECONDS))
+                .orElse(OptionalLong.empty());
+        bloqueos.increment();
+        return Math.max(1, ventanaMillis - edad.orElse(0));
+    }
+
+    public void reiniciar(String correo) {
+        if (correo != null) {
+            fallos.invalidate(UsuarioCache.normalizar(correo));
+        }
+    }
+}
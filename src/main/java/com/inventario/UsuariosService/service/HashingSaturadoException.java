@@ -0,0 +1,19 @@
+package com.inventario.UsuariosService.service;
+
+/**
+ * Se lanza cuando el pool de hashing de contraseñas no admite más trabajo.
+ * Los controladores la traducen a 503 con cabecera Retry-After.
+ */
+public class HashingSaturadoException extends RuntimeException {
+
+    private final long retryAfterSegundos;
+
+    public HashingSaturadoException(String message, long retryAfterSegundos) {
+        super(message);
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+}
@@ -0,0 +1,88 @@
+package com.inventario.UsuariosService.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador de intentos para los endpoints públicos de autenticación, por IP y por correo.
+ * Cada clave es un token bucket en forma GCRA: un único AtomicLong con el instante teórico de
+ * la siguiente llegada, actualizado por CAS sin bloqueos. Una clave inactiva durante la ráfaga
+ * completa vuelve a tener el cubo lleno, así que se expulsa sin perder información; el tamaño
+ * máximo acota la memoria ante muchas IP o correos distintos.
+ */
+@Component
+public class LimitadorLogin {
+
+    private final Limite porIp;
+    private final Limite porCorreo;
+
+    public LimitadorLogin(MeterRegistry meterRegistry,
+                          @Value("${login.limite.ip.rafaga:20}") int rafagaIp,
+                          @Value("${login.limite.ip.por-minuto:60}") int porMinutoIp,
+                          @Value("${login.limite.correo.rafaga:5}") int rafagaCorreo,
+                          @Value("${login.limite.correo.por-minuto:10}") int porMinutoCorreo,
+                          @Value("${login.limite.max-claves:100000}") long maxClaves) {
+        this.porIp = new Limite("ip", rafagaIp, porMinutoIp, maxClaves, meterRegistry);
+        this.porCorreo = new Limite("correo", rafagaCorreo, porMinutoCorreo, maxClaves, meterRegistry);
+    }
+
+    // 0 si se admite el intento; si no, milisegundos hasta que habrá un token libre.
+    // Se comprueba antes de cualquier consulta o hash; correo puede ser null (solo se limita la IP).
+    public long esperaMillis(String ip, String correo) {
+        long espera = porIp.consumir(ip);
+        if (espera > 0 || correo == null) {
+            return espera;
+        }
+        return porCorreo.consumir(UsuarioCache.normalizar(correo));
+    }
+
+    private static final class Limite {
+        private final long intervaloNanos;
+        private final long toleranciaNanos;
+        // clave -> instante teórico (System.nanoTime) en que el cubo vuelve a estar lleno
+        private final Cache<String, AtomicLong> llegadas;
+        private final Counter rechazos;
+
+        Limite(String tipo, int rafaga, int porMinuto, long maxClaves, MeterRegistry meterRegistry) {
+            this.intervaloNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(porMinuto, 1);
+            this.toleranciaNanos = intervaloNanos * Math.max(rafaga, 1);
+            this.llegadas = Caffeine.newBuilder()
+                    .maximumSize(maxClaves)
+                    .expireAfterAccess(Duration.ofNanos(toleranciaNanos))
+                    .build();
+            this.rechazos = Counter.builder("login.limite.rechazos").tag("clave", tipo).register(meterRegistry);
+            meterRegistry.gauge("login.limite.claves", Tags.of("clave", tipo),
+                    llegadas, c -> c.estimatedSize());
+        }
+
+        long consumir(String clave) {
+            if (clave == null) {
+                return 0;
+            }
+            AtomicLong tat = llegadas.get(clave, k -> new AtomicLong(Long.MIN_VALUE));
+            while (true) {
+                long ahora = System.nanoTime();
+                long actual = tat.get();
+                long base = actual == Long.MIN_VALUE || actual - ahora < 0 ? ahora : actual;
+                long siguiente = base + intervaloNanos;
+                long exceso = siguiente - ahora - toleranciaNanos;
+                if (exceso > 0) {
+                    rechazos.increment();
+                    return Math.max(TimeUnit.NANOSECONDS.toMillis(exceso), 1);
+                }
+                if (tat.compareAndSet(actual, siguiente)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.inventario.UsuariosService.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nivel de carga de la instancia a partir de tres señales, cada una dividida por su umbral:
+ * conexiones JDBC en espera respecto al tamaño del pool (el peor pool de Hikari), ocupación del pool
+ * de BCrypt y latencia media exponencial (EWMA) de las peticiones. La mayor de las tres es la carga.
+ * <p>
+ * Con carga 1 se pasa a ELEVADO y se rechazan las peticiones de prioridad BAJA (listados de
+ * administración); con saturado-factor se pasa a SATURADO, se rechazan también las NORMAL y
+ * readiness pasa a REFUSING_TRAFFIC (OUT_OF_SERVICE). /login, /refresh e /internal nunca se rechazan
+ * aquí. Subir de nivel es inmediato; bajar exige que la carga quede por debajo de salida-factor del
+ * umbral actual durante permanencia-ms, y se baja de uno en uno, para no oscilar.
+ */
+@Component
+public class MonitorCarga {
+    private static final Logger logger = LoggerFactory.getLogger(MonitorCarga.class);
+
+    private static final double ALFA_EWMA = 0.1;
+    // Sin peticiones la media decae a la mitad en cada evaluación: fuera del balanceador no llega tráfico
+    private static final long SIN_MUESTRAS_MILLIS = 1000;
+
+    public enum Nivel {
+        NORMAL, ELEVADO, SATURADO
+    }
+
+    public enum Prioridad {
+        ALTA, NORMAL, BAJA
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final PasswordHashingService passwordHashingService;
+    private final ApplicationEventPublisher publisher;
+    private final boolean rechazoActivo;
+    private final double umbralPendientesJdbc;
+    private final double umbralOcupacionHash;
+    private final double latenciaObjetivoMillis;
+    private final double factorSaturado;
+    private final double factorSalida;
+    private final long permanenciaMillis;
+
+    // EWMA de la latencia en milisegundos, como bits de double para actualizarla por CAS
+    private final AtomicLong latenciaEwma = new AtomicLong(Double.doubleToLongBits(0));
+    private volatile long ultimaMuestra;
+    private final Map<Prioridad, Counter> rechazos = new EnumMap<>(Prioridad.class);
+
+    private volatile Nivel nivel = Nivel.NORMAL;
+    private volatile Senales senales = new Senales(0, 0, 0, 0);
+    // Desde cuándo la carga está por debajo del umbral de salida del nivel actual (solo el hilo de evaluación)
+    private long bajoUmbralDesde;
+
+    public MonitorCarga(MeterRegistry meterRegistry,
+                        PasswordHashingService passwordHashingService,
+                        ApplicationEventPublisher publisher,
+                        @Value("${carga.rechazo.enabled:true}") boolean rechazoActivo,
+                        @Value("${carga.jdbc.pendientes-ratio:0.5}") double umbralPendientesJdbc,
+                        @Value("${carga.hash.ocupacion:0.75}") double umbralOcupacionHash,
+                        @Value("${carga.latencia-objetivo-ms:500}") double latenciaObjetivoMillis,
+                        @Value("${carga.saturado-factor:1.5}") double factorSaturado,
+                        @Value("${carga.salida-factor:0.7}") double factorSalida,
+                        @Value("${carga.permanencia-ms:5000}") long permanenciaMillis) {
+        this.meterRegistry = meterRegistry;
+        this.passwordHashingService = passwordHashingService;
+        this.publisher = publisher;
+        this.rechazoActivo = rechazoActivo;
+        this.umbralPendientesJdbc = umbralPendientesJdbc;
+        this.umbralOcupacionHash = umbralOcupacionHash;
+        this.latenciaObjetivoMillis = latenciaObjetivoMillis;
+        this.factorSaturado = factorSaturado;
+        this.factorSalida = factorSalida;
+        this.permanenciaMillis = permanenciaMillis;
+        for (Prioridad prioridad : Prioridad.values()) {
+            rechazos.put(prioridad, Counter.builder("carga.rechazos")
+                    .tag("prioridad", prioridad.name().toLowerCase()).register(meterRegistry));
+        }
+        Gauge.builder("carga.nivel", this, m -> m.nivel.ordinal()).register(meterRegistry);
+        Gauge.builder("carga.valor", this, m -> m.senales.carga()).register(meterRegistry);
+        Gauge.builder("carga.latencia.ewma", this, m -> m.latenciaMillis()).baseUnit("milliseconds").register(meterRegistry);
+    }
+
+    public void registrarLatencia(long nanos) {
+        double muestra = nanos / 1_000_000.0;
+        long actual;
+        long nuevo;
+        do {
+            actual = latenciaEwma.get();
+            double media = Double.longBitsToDouble(actual);
+            nuevo = Double.doubleToLongBits(media + ALFA_EWMA * (muestra - media));
+        } while (!latenciaEwma.compareAndSet(actual, nuevo));
+        ultimaMuestra = System.currentTimeMillis();
+    }
+
+    // false si la petición debe rechazarse con el nivel actual; cuenta el rechazo
+    public boolean admite(Prioridad prioridad) {
+        Nivel actual = nivel;
+        boolean admitida = !rechazoActivo || prioridad == Prioridad.ALTA
+                || actual == Nivel.NORMAL
+                || (actual == Nivel.ELEVADO && prioridad == Prioridad.NORMAL);
+        if (!admitida) {
+            rechazos.get(prioridad).increment();
+        }
+        return admitida;
+    }
+
+    public boolean admiteTrafico() {
+        return nivel != Nivel.SATURADO;
+    }
+
+    public Map<String, Object> detalle() {
+        Senales s = senales;
+        Map<String, Object> detalle = new LinkedHashMap<>();
+        detalle.put("nivel", nivel.name());
+        detalle.put("carga", redondear(s.carga()));
+        detalle.put("pendientesJdbc", redondear(s.pendientesJdbc()));
+        detalle.put("ocupacionHash", redondear(s.ocupacionHash()));
+        detalle.put("latenciaMs", redondear(s.latenciaMillis()));
+        return detalle;
+    }
+
+    @Scheduled(fixedDelayString = "${carga.evaluar-ms:250}")
+    public void evaluar() {
+        long ahora = System.currentTimeMillis();
+        if (ahora - ultimaMuestra > SIN_MUESTRAS_MILLIS) {
+            latenciaEwma.updateAndGet(bits -> Double.doubleToLongBits(Double.longBitsToDouble(bits) / 2));
+        }
+        double pendientes = pendientesJdbc();
+        double ocupacion = passwordHashingService.ocupacion();
+        double latencia = latenciaMillis();
+        double carga = Math.max(pendientes / umbralPendientesJdbc,
+                Math.max(ocupacion / umbralOcupacionHash, latencia / latenciaObjetivoMillis));
+        senales = new Senales(pendientes, ocupacion, latencia, carga);
+
+        Nivel objetivo = carga >= factorSaturado ? Nivel.SATURADO : carga >= 1 ? Nivel.ELEVADO : Nivel.NORMAL;
+        if (objetivo.compareTo(nivel) > 0) {
+            cambiar(objetivo);
+        } else if (objetivo.compareTo(nivel) < 0) {
+            double umbralActual = nivel == Nivel.SATURADO ? factorSaturado : 1;
+            if (carga >= umbralActual * factorSalida) {
+                bajoUmbralDesde = 0;
+            } else if (bajoUmbralDesde == 0) {
+                bajoUmbralDesde = ahora;
+            } else if (ahora - bajoUmbralDesde >= permanenciaMillis) {
+                cambiar(Nivel.values()[nivel.ordinal() - 1]);
+            }
+        } else {
+            bajoUmbralDesde = 0;
+        }
+    }
+
+    private void cambiar(Nivel nuevo) {
+        Nivel anterior = nivel;
+        nivel = nuevo;
+        bajoUmbralDesde = 0;
+        logger.warn("Nivel de carga {} -> {} ({})", anterior, nuevo, detalle());
+        if (nuevo == Nivel.SATURADO) {
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+        } else if (anterior == Nivel.SATURADO) {
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    // Peor pool: conexiones esperadas / tamaño máximo (primario y réplicas publican sus métricas)
+    private double pendientesJdbc() {
+        double peor = 0;
+        for (Gauge pendientes : meterRegistry.find("hikaricp.connections.pending").gauges()) {
+            Gauge maximo = meterRegistry.find("hikaricp.connections.max")
+                    .tag("pool", pendientes.getId().getTag("pool")).gauge();
+            double tamano = maximo != null ? Math.max(1, maximo.value()) : 1;
+            peor = Math.max(peor, pendientes.value() / tamano);
+        }
+        return peor;
+    }
+
+    private double latenciaMillis() {
+        return Double.longBitsToDouble(latenciaEwma.get());
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 1000) / 1000.0;
+    }
+
+    private record Senales(double pendientesJdbc, double ocupacionHash, double latenciaMillis, double carga) {
+    }
+}
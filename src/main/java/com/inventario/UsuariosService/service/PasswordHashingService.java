@@ -0,0 +1,255 @@
+package com.inventario.UsuariosService.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ejecuta el hashing y la verificación de contraseñas (BCrypt) en un pool propio,
+ * dimensionado a los núcleos disponibles y con cola acotada, para que las ráfagas de
+ * login no ocupen los hilos de Tomcat que atienden al resto de endpoints.
+ * Las importaciones masivas usan otro pool más pequeño, también acotado, para que un lote
+ * largo nunca deje sin hilos al login.
+ * Verificar un hash antiguo (menor coste u otro algoritmo) cuesta lo mismo que uno actual, y lo mismo
+ * que el hash ficticio de los correos que no existen, para que el tiempo no delate qué cuentas existen.
+ */
+@Service
+public class PasswordHashingService {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+    // Coste de un hash BCrypt, con o sin el prefijo {bcrypt} del encoder delegante
+    private static final Pattern BCRYPT = Pattern.compile("^(?:\\{bcrypt})?\\$2[aby]?\\$(\\d{2})\\$");
+    private static final int BCRYPT_COSTE_MINIMO = 4;
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor importExecutor;
+    private final long timeoutMillis;
+    private final long retryAfterSegundos;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rechazos;
+    // Hash de referencia con el mismo coste que los reales, para igualar tiempos de respuesta
+    private final String hashFicticio;
+    // Coste BCrypt de los hashes nuevos (-1 si el algoritmo actual no es BCrypt) y hashes ficticios de
+    // cada coste inferior (índice = coste), para completar el trabajo de un hash BCrypt antiguo
+    private final int costeActual;
+    private final String[] ficticiosPorCoste;
+    private final BCryptPasswordEncoder bcryptFicticio = new BCryptPasswordEncoder();
+    // Media móvil de una verificación con el formato actual; tiempo al que se completa un hash de otro algoritmo
+    private volatile long nanosFormatoActual;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${password.hash.threads:0}") int threads,
+                                  @Value("${password.hash.queue-capacity:64}") int queueCapacity,
+                                  @Value("${password.hash.timeout-ms:5000}") long timeoutMillis,
+                                  @Value("${password.hash.retry-after-seconds:1}") long retryAfterSegundos,
+                                  @Value("${password.hash.import-threads:0}") int importThreads,
+                                  @Value("${password.hash.import-queue-capacity:16}") int importQueueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSegundos = retryAfterSegundos;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        // Por defecto una cuarta parte de los núcleos: el resto queda para los logins durante una importación
+        int importPoolSize = importThreads > 0 ? importThreads : Math.max(1, poolSize / 4);
+        this.importExecutor = new ThreadPoolExecutor(importPoolSize, importPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(importQueueCapacity), new HashingThreadFactory("password-hash-import-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("password.hash.latency").tag("operacion", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hash.latency").tag("operacion", "matches").register(meterRegistry);
+        long inicio = System.nanoTime();
+        this.hashFicticio = passwordEncoder.encode("hash-ficticio-para-tiempo-constante");
+        this.nanosFormatoActual = System.nanoTime() - inicio;
+        this.costeActual = costeBCrypt(hashFicticio);
+        this.ficticiosPorCoste = new String[Math.max(costeActual, 0)];
+        // Todos juntos cuestan menos que un solo hash del coste actual
+        for (int coste = BCRYPT_COSTE_MINIMO; coste < costeActual; coste++) {
+            ficticiosPorCoste[coste] = new BCryptPasswordEncoder(coste).encode("hash-ficticio-para-tiempo-constante");
+        }
+        this.rechazos = Counter.builder("password.hash.rejected").register(meterRegistry);
+        Gauge.builder("password.hash.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("password.hash.import.active", importExecutor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutar(() -> matchesTimer.record(() -> {
+            long inicio = System.nanoTime();
+            boolean coincide = passwordEncoder.matches(rawPassword, encodedPassword);
+            igualarCoste(rawPassword, encodedPassword, System.nanoTime() - inicio);
+            return coincide;
+        }));
+    }
+
+    // true si el hash usa otro algoritmo o un coste menor que el configurado
+    public boolean necesitaRehash(String encodedPassword) {
+        return encodedPassword != null && passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    // Recalcula el hash en el pool sin que nadie espere; si el pool está lleno se omite y se reintentará en otro login
+    public void rehashEnSegundoPlano(CharSequence rawPassword, Consumer<String> alTerminar) {
+        try {
+            executor.execute(() -> {
+                try {
+                    alTerminar.accept(encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+                } catch (RuntimeException e) {
+                    logger.warn("No se pudo actualizar el hash de contraseña: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Rehash omitido: pool de hashing lleno");
+        }
+    }
+
+    // Fracción ocupada de hilos más cola (0-1): cuántos logins en curso admite aún el pool
+    public double ocupacion() {
+        int capacidad = executor.getMaximumPoolSize() + executor.getQueue().size() + executor.getQueue().remainingCapacity();
+        return (double) (executor.getActiveCount() + executor.getQueue().size()) / capacidad;
+    }
+
+    // Consume el mismo tiempo que una verificación real cuando el usuario no existe
+    public void matchesFicticio(CharSequence rawPassword) {
+        matches(rawPassword != null ? rawPassword : "", hashFicticio);
+    }
+
+    // Hashea un lote repartiéndolo en tantas tareas como hilos tiene el pool de importación
+    public List<String> encodeLote(List<String> rawPasswords) {
+        if (rawPasswords.isEmpty()) {
+            return List.of();
+        }
+        int tareas = Math.min(importExecutor.getCorePoolSize(), rawPasswords.size());
+        int porTarea = (rawPasswords.size() + tareas - 1) / tareas;
+        List<Future<List<String>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < rawPasswords.size(); i += porTarea) {
+                List<String> parte = rawPasswords.subList(i, Math.min(i + porTarea, rawPasswords.size()));
+                futures.add(enviar(importExecutor, () -> parte.stream()
+                        .map(raw -> encodeTimer.record(() -> passwordEncoder.encode(raw)))
+                        .toList()));
+            }
+            List<String> resultado = new ArrayList<>(rawPasswords.size());
+            for (Future<List<String>> future : futures) {
+                resultado.addAll(esperar(future, timeoutMillis * porTarea));
+            }
+            return resultado;
+        } catch (RuntimeException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        }
+    }
+
+    // Un hash antiguo se verifica antes que uno actual: se completa el trabajo hasta el del formato actual
+    private void igualarCoste(CharSequence rawPassword, String encodedPassword, long nanos) {
+        if (!necesitaRehash(encodedPassword)) {
+            // Carrera benigna entre hilos: basta con una media aproximada
+            nanosFormatoActual += (nanos - nanosFormatoActual) / 8;
+            return;
+        }
+        int coste = costeBCrypt(encodedPassword);
+        if (coste >= BCRYPT_COSTE_MINIMO && coste < costeActual) {
+            // 2^c + 2^c + 2^(c+1) + ... + 2^(C-1) = 2^C: mismo número de rondas en CPU que un hash de coste C
+            for (int k = coste; k < costeActual; k++) {
+                bcryptFicticio.matches(rawPassword, ficticiosPorCoste[k]);
+            }
+        } else {
+            long restante = nanosFormatoActual - nanos;
+            if (restante > 0) {
+                LockSupport.parkNanos(restante);
+            }
+        }
+    }
+
+    private static int costeBCrypt(String encodedPassword) {
+        Matcher m = encodedPassword != null ? BCRYPT.matcher(encodedPassword) : null;
+        return m != null && m.find() ? Integer.parseInt(m.group(1)) : -1;
+    }
+
+    private <T> T ejecutar(Supplier<T> tarea) {
+        return esperar(enviar(executor, tarea), timeoutMillis);
+    }
+
+    private <T> Future<T> enviar(ThreadPoolExecutor pool, Supplier<T> tarea) {
+        try {
+            return pool.submit(tarea::get);
+        } catch (RejectedExecutionException e) {
+            rechazos.increment();
+            throw new HashingSaturadoException("Servicio de autenticación saturado", retryAfterSegundos);
+        }
+    }
+
+    private <T> T esperar(Future<T> future, long timeout) {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rechazos.increment();
+            throw new HashingSaturadoException("Tiempo de espera agotado en el hashing de contraseña", retryAfterSegundos);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hashing de contraseña interrumpido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        importExecutor.shutdown();
+    }
+
+    private static class HashingThreadFactory implements ThreadFactory {
+        private final String prefijo;
+        private final AtomicInteger contador = new AtomicInteger();
+
+        HashingThreadFactory(String prefijo) {
+            this.prefijo = prefijo;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefijo + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
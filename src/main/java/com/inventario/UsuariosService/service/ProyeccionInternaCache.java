@@ -0,0 +1,104 @@
+package com.inventario.UsuariosService.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inventario.UsuariosService.dto.ProyeccionInterna;
+import com.inventario.UsuariosService.entity.Usuario;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Respuestas ya serializadas de los endpoints internos, por id de usuario.
+ * Se invalidan junto con UsuarioCache en cada escritura y comparten su TTL.
+ */
+@Component
+public class ProyeccionInternaCache {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, ProyeccionInterna> proyecciones;
+
+    public ProyeccionInternaCache(ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${usuarios.cache.max-size:10000}") long maxSize,
+                                  @Value("${usuarios.cache.ttl-seconds:60}") long ttlSegundos) {
+        this.objectMapper = objectMapper;
+        this.proyecciones = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, proyecciones, "usuarios.proyeccion-interna");
+    }
+
+    // La serialización se hace fuera de Cache.get por el mismo motivo que la carga en UsuarioCache
+    public ProyeccionInterna de(Usuario usuario) {
+        ProyeccionInterna cacheada = proyecciones.getIfPresent(usuario.getId());
+        if (cacheada != null) {
+            return cacheada;
+        }
+        ProyeccionInterna nueva = serializar(usuario);
+        proyecciones.put(usuario.getId(), nueva);
+        return nueva;
+    }
+
+    public ProyeccionInterna getIfPresent(Long id) {
+        return id != null ? proyecciones.getIfPresent(id) : null;
+    }
+
+    public void invalidar(Long id) {
+        if (id != null) {
+            proyecciones.invalidate(id);
+        }
+    }
+
+    private ProyeccionInterna serializar(Usuario u) {
+        // Sin la contraseña
+        Map<String, Object> campos = new LinkedHashMap<>();
+        campos.put("id", u.getId());
+        campos.put("nombre", u.getNombre());
+        campos.put("correo", u.getCorreo());
+        campos.put("rol", u.getRol());
+        campos.put("activo", u.getActivo());
+        try {
+            String json = objectMapper.writeValueAsString(campos);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            return new ProyeccionInterna(u.getId(), json, bytes, etag(bytes), ultimaModificacion(u));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el usuario " + u.getId(), e);
+        }
+    }
+
+    // Filas anteriores a fecha_actualizacion usan la fecha de registro
+    public static long ultimaModificacion(Usuario u) {
+        LocalDateTime fecha = u.getFechaActualizacion() != null ? u.getFechaActualizacion() : u.getFechaRegistro();
+        if (fecha == null) {
+            return 0L;
+        }
+        long millis = fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return millis - Math.floorMod(millis, 1000L);
+    }
+
+    private static String etag(byte[] contenido) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(contenido);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
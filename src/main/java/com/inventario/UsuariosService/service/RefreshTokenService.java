@@ -0,0 +1,131 @@
+package com.inventario.UsuariosService.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inventario.UsuariosService.entity.RefreshToken;
+import com.inventario.UsuariosService.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Refresh tokens opacos, de un solo uso y rotatorios.
+ * Se guardan como SHA-256 (no BCrypt: el token ya tiene 256 bits aleatorios), con una caché en memoria
+ * delante de la tabla. Presentar un token ya usado se trata como robo y anula toda su familia.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom random = new SecureRandom();
+    private final long validezMillis;
+    private final Cache<String, RefreshToken> cache;
+    private final Counter reutilizaciones;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${jwt.refresh-expiration:1209600}") long validezSegundos,
+                               @Value("${jwt.refresh-cache.max-size:10000}") long maxSize) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.validezMillis = validezSegundos * 1000;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(validezSegundos))
+                .build();
+        this.reutilizaciones = Counter.builder("jwt.refresh.reuse").register(meterRegistry);
+    }
+
+    // Primer refresh token tras un login: abre una familia nueva
+    public String emitir(Long usuarioId) {
+        return emitir(usuarioId, UUID.randomUUID().toString());
+    }
+
+    // Consume el token y devuelve uno nuevo de la misma familia; vacío si no es válido
+    public Optional<Rotacion> rotar(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        String hash = hash(token);
+        RefreshToken actual = cache.getIfPresent(hash);
+        if (actual == null) {
+            actual = refreshTokenRepository.findById(hash).orElse(null);
+            if (actual == null) {
+                return Optional.empty();
+            }
+        }
+        if (actual.getExpiraEn() <= System.currentTimeMillis()) {
+            cache.invalidate(hash);
+            return Optional.empty();
+        }
+        // El UPDATE condicional decide quién gana si dos peticiones (o dos instancias) usan el mismo token
+        if (Boolean.TRUE.equals(actual.getUsado()) || refreshTokenRepository.marcarUsado(hash) == 0) {
+            reutilizaciones.increment();
+            logger.warn("Reutilización de refresh token detectada; se revoca la familia del usuario {}", actual.getUsuarioId());
+            revocarFamilia(actual.getFamilia());
+            return Optional.empty();
+        }
+        actual.setUsado(true);
+        cache.put(hash, actual);
+        return Optional.of(new Rotacion(actual.getUsuarioId(), emitir(actual.getUsuarioId(), actual.getFamilia())));
+    }
+
+    // Desactivación, borrado o cambio de contraseña: ningún refresh token del usuario sigue valiendo
+    public void revocarDeUsuario(Long usuarioId) {
+        if (usuarioId == null) {
+            return;
+        }
+        refreshTokenRepository.deleteByUsuarioId(usuarioId);
+        cache.asMap().values().removeIf(r -> usuarioId.equals(r.getUsuarioId()));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-cleanup-ms:3600000}")
+    public void limpiarExpirados() {
+        try {
+            refreshTokenRepository.deleteExpirados(System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.warn("No se pudieron borrar los refresh tokens expirados: {}", e.getMessage());
+        }
+    }
+
+    private String emitir(Long usuarioId, String familia) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        RefreshToken registro = new RefreshToken(hash(token), usuarioId, familia,
+                System.currentTimeMillis() + validezMillis, false);
+        refreshTokenRepository.insertar(registro);
+        cache.put(registro.getHash(), registro);
+        return token;
+    }
+
+    private void revocarFamilia(String familia) {
+        refreshTokenRepository.deleteByFamilia(familia);
+        cache.asMap().values().removeIf(r -> familia.equals(r.getFamilia()));
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    public record Rotacion(Long usuarioId, String refreshToken) {
+    }
+}
@@ -0,0 +1,173 @@
+package com.inventario.UsuariosService.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.inventario.UsuariosService.entity.RevocacionToken;
+import com.inventario.UsuariosService.repository.RevocacionTokenRepository;
+import com.inventario.UsuariosService.util.JwtClaims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revocación de tokens sin consultar la base de datos en cada petición.
+ * Guarda en memoria los jti revocados y, por usuario, el instante desde el que vuelven a ser válidos
+ * sus tokens. Cada entrada caduca cuando ya no puede existir ningún token afectado sin expirar.
+ * Se persiste en revocaciones_token y se recarga periódicamente para recoger las de otras instancias.
+ * <p>
+ * Mientras la caché no ha descartado ninguna entrada por tamaño, que una clave no esté en ella
+ * significa que no hay revocación. Si alguna vez se llena, los fallos se consultan en la tabla
+ * (con una caché negativa durante refresh-ms) para que una revocación descartada nunca vuelva
+ * a dar por válidos sus tokens.
+ */
+@Service
+public class RevocacionTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RevocacionTokenService.class);
+    private static final String PREFIJO_JTI = "jti:";
+    private static final String PREFIJO_USUARIO = "usuario:";
+
+    private final RevocacionTokenRepository revocacionTokenRepository;
+    private final long validezTokenMillis;
+    // clave (jti:... o usuario:...) -> entrada; expira en su propio expiraEn
+    private final Cache<String, RevocacionToken> revocaciones;
+    private final Counter rechazados;
+    private final Counter consultas;
+    // Claves consultadas en la tabla sin revocación (solo se usa tras descartar entradas por tamaño)
+    private final Cache<String, Boolean> ausentes;
+    private volatile boolean desbordada;
+
+    public RevocacionTokenService(RevocacionTokenRepository revocacionTokenRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${jwt.expiration:3600}") long expiracionSegundos,
+                                  @Value("${jwt.revocation.max-size:100000}") long maxSize,
+                                  @Value("${jwt.revocation.refresh-ms:30000}") long refreshMillis) {
+        this.revocacionTokenRepository = revocacionTokenRepository;
+        this.validezTokenMillis = expiracionSegundos * 1000;
+        this.revocaciones = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ExpiraEnRevocacion())
+                // Síncrono con el descarte (removalListener se ejecutaría después, en otro hilo)
+                .evictionListener((String clave, RevocacionToken r, RemovalCause causa) -> {
+                    if (causa == RemovalCause.SIZE && !desbordada) {
+                        desbordada = true;
+                        logger.warn("Caché de revocaciones llena (jwt.revocation.max-size={}): los fallos se consultan en la tabla", maxSize);
+                    }
+                })
+                .build();
+        this.ausentes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(refreshMillis, TimeUnit.MILLISECONDS)
+                .build();
+        this.rechazados = Counter.builder("jwt.revoked.rejected").register(meterRegistry);
+        this.consultas = Counter.builder("jwt.revoked.lookups").register(meterRegistry);
+        meterRegistry.gauge("jwt.revoked.entries", revocaciones, c -> c.estimatedSize());
+    }
+
+    // Comprobación O(1) para el filtro: jti revocado o token emitido antes del último corte del usuario.
+    // Ambos instantes van en milisegundos (claim iat_ms); un token del mismo milisegundo que el corte se rechaza.
+    public boolean isRevocado(JwtClaims claims) {
+        if (claims.jti() != null && buscar(PREFIJO_JTI + claims.jti()) != null) {
+            rechazados.increment();
+            return true;
+        }
+        RevocacionToken corte = claims.correo() != null
+                ? buscar(PREFIJO_USUARIO + normalizar(claims.correo())) : null;
+        if (corte != null && claims.emitidoEnMillis() <= corte.getRevocadoEn()) {
+            rechazados.increment();
+            return true;
+        }
+        return false;
+    }
+
+    // Revoca un token concreto (logout)
+    public void revocarToken(JwtClaims claims) {
+        if (claims.jti() != null) {
+            registrar(new RevocacionToken(PREFIJO_JTI + claims.jti(), System.currentTimeMillis(), claims.expiraEnMillis()));
+        }
+    }
+
+    // Invalida todos los tokens emitidos hasta ahora para el usuario (desactivación, borrado, cambio de contraseña)
+    public void revocarTokensDeUsuario(String correo) {
+        if (correo == null) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        registrar(new RevocacionToken(PREFIJO_USUARIO + normalizar(correo), ahora, ahora + validezTokenMillis));
+    }
+
+    private RevocacionToken buscar(String clave) {
+        RevocacionToken revocacion = revocaciones.getIfPresent(clave);
+        if (revocacion != null || !desbordada || ausentes.getIfPresent(clave) != null) {
+            return revocacion;
+        }
+        consultas.increment();
+        try {
+            revocacion = revocacionTokenRepository.findById(clave)
+                    .filter(r -> r.getExpiraEn() > System.currentTimeMillis())
+                    .orElse(null);
+        } catch (Exception e) {
+            // Sin base de datos no se puede confirmar: se trata como no revocado, igual que antes de llenarse
+            logger.warn("No se pudo consultar la revocación {}: {}", clave, e.getMessage());
+            return null;
+        }
+        if (revocacion != null) {
+            revocaciones.put(clave, revocacion);
+        } else {
+            ausentes.put(clave, Boolean.TRUE);
+        }
+        return revocacion;
+    }
+
+    private void registrar(RevocacionToken revocacion) {
+        revocaciones.put(revocacion.getClave(), revocacion);
+        ausentes.invalidate(revocacion.getClave());
+        revocacionTokenRepository.save(revocacion);
+    }
+
+    // Recarga desde la tabla y borra las filas que ya no afectan a ningún token vigente
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-ms:30000}")
+    public void recargar() {
+        try {
+            long ahora = System.currentTimeMillis();
+            for (RevocacionToken r : revocacionTokenRepository.findByExpiraEnGreaterThan(ahora)) {
+                revocaciones.asMap().merge(r.getClave(), r,
+                        (actual, nueva) -> nueva.getRevocadoEn() > actual.getRevocadoEn() ? nueva : actual);
+                ausentes.invalidate(r.getClave());
+            }
+            revocacionTokenRepository.deleteExpiradas(ahora);
+        } catch (Exception e) {
+            logger.warn("No se pudieron recargar las revocaciones de token: {}", e.getMessage());
+        }
+    }
+
+    private static String normalizar(String correo) {
+        return correo.toLowerCase(Locale.ROOT);
+    }
+
+    private static class ExpiraEnRevocacion implements Expiry<String, RevocacionToken> {
+        @Override
+        public long expireAfterCreate(String key, RevocacionToken value, long currentTime) {
+            long restanteMillis = value.getExpiraEn() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(restanteMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, RevocacionToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, RevocacionToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.inventario.UsuariosService.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inventario.UsuariosService.entity.Usuario;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Caché en proceso (W-TinyLFU de Caffeine) delante de UsuarioRepository, indexada por id y por correo.
+ * Guarda y devuelve copias para que ningún llamador pueda modificar la entrada cacheada.
+ * El TTL acota la antigüedad de los datos cuando otra instancia escribe en la base de datos.
+ * Dentro de la instancia, una carga no deja en caché una fila si su id se invalidó después de que
+ * empezara la consulta: cada invalidación sella su franja con un reloj lógico y la carga compara
+ * ese sello con el instante en que empezó.
+ */
+@Component
+public class UsuarioCache {
+
+    // Potencia de dos; dos ids en la misma franja solo provocan alguna carga de más, nunca datos viejos
+    private static final int FRANJAS = 1024;
+
+    private final Cache<Long, Usuario> porId;
+    private final Cache<String, Long> idPorCorreo;
+    private final Timer cargaTimer;
+    private final AtomicLong reloj = new AtomicLong();
+    private final AtomicLongArray invalidaciones = new AtomicLongArray(FRANJAS);
+
+    public UsuarioCache(MeterRegistry meterRegistry,
+                        @Value("${usuarios.cache.max-size:10000}") long maxSize,
+                        @Value("${usuarios.cache.ttl-seconds:60}") long ttlSegundos) {
+        this.porId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+        this.idPorCorreo = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+        this.cargaTimer = Timer.builder("usuarios.cache.load").register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, porId, "usuarios.por-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, idPorCorreo, "usuarios.por-correo");
+    }
+
+    public Optional<Usuario> getPorId(Long id, Function<Long, Optional<Usuario>> cargador) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Usuario cacheado = porId.getIfPresent(id);
+        if (cacheado != null) {
+            return Optional.of(copiar(cacheado));
+        }
+        // La carga se hace fuera de Cache.get(key, loader): su cómputo atómico retiene un monitor
+        // durante la consulta JDBC y fijaría el hilo portador cuando se usan hilos virtuales
+        long inicio = reloj.get();
+        Optional<Usuario> cargado = cargar(() -> cargador.apply(id));
+        cargado.ifPresent(u -> poner(u, inicio));
+        return cargado.map(UsuarioCache::copiar);
+    }
+
+    // Solo devuelve usuarios activos, igual que findByCorreoAndActivoTrue
+    public Optional<Usuario> getActivoPorCorreo(String correo, Function<String, Optional<Usuario>> cargador) {
+        if (correo == null) {
+            return Optional.empty();
+        }
+        String clave = normalizar(correo);
+        Long id = idPorCorreo.getIfPresent(clave);
+        if (id != null) {
+            Usuario cacheado = porId.getIfPresent(id);
+            if (cacheado != null && clave.equals(normalizar(cacheado.getCorreo()))
+                    && Boolean.TRUE.equals(cacheado.getActivo())) {
+                return Optional.of(copiar(cacheado));
+            }
+        }
+        long inicio = reloj.get();
+        Optional<Usuario> cargado = cargar(() -> cargador.apply(correo));
+        cargado.ifPresent(u -> poner(u, inicio));
+        return cargado.map(UsuarioCache::copiar);
+    }
+
+    // Resuelve varios ids a la vez: aciertos desde la caché y el resto con una sola consulta IN
+    public Map<Long, Usuario> getTodosPorId(Collection<Long> ids, Function<Set<Long>, List<Usuario>> cargador) {
+        long inicio = reloj.get();
+        Map<Long, Usuario> encontrados = porId.getAll(ids, faltantes -> {
+            Map<Long, Usuario> cargados = new HashMap<>();
+            for (Usuario u : cargar(() -> cargador.apply(Set.copyOf(faltantes)))) {
+                cargados.put(u.getId(), u);
+            }
+            return cargados;
+        });
+        Map<Long, Usuario> resultado = new LinkedHashMap<>();
+        encontrados.forEach((id, u) -> {
+            idPorCorreo.put(normalizar(u.getCorreo()), id);
+            // getAll ya guardó lo cargado; se retira si el id se invalidó durante la consulta
+            if (invalidadoDesde(id, inicio)) {
+                porId.asMap().remove(id, u);
+            }
+            resultado.put(id, copiar(u));
+        });
+        return resultado;
+    }
+
+    // Igual que getTodosPorId pero por correo; incluye usuarios inactivos, como la consulta por id
+    public Map<String, Usuario> getTodosPorCorreo(Collection<String> correos, Function<Set<String>, List<Usuario>> cargador) {
+        Map<String, Usuario> resultado = new LinkedHashMap<>();
+        List<String> faltantes = new ArrayList<>();
+        for (String correo : correos) {
+            if (correo == null) {
+                continue;
+            }
+            String clave = normalizar(correo);
+            Long id = idPorCorreo.getIfPresent(clave);
+            Usuario cacheado = id != null ? porId.getIfPresent(id) : null;
+            if (cacheado != null && clave.equals(normalizar(cacheado.getCorreo()))) {
+                resultado.put(clave, copiar(cacheado));
+            } else {
+                faltantes.add(correo);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            long inicio = reloj.get();
+            for (Usuario u : cargar(() -> cargador.apply(Set.copyOf(faltantes)))) {
+                poner(u, inicio);
+                resultado.put(normalizar(u.getCorreo()), copiar(u));
+            }
+        }
+        return resultado;
+    }
+
+    // Invalida la entrada del id y su correo; se llama en cada escritura
+    public void invalidar(Long id) {
+        if (id == null) {
+            return;
+        }
+        // El sello va antes que el borrado: una carga que guarde después lo verá y retirará su entrada
+        invalidaciones.accumulateAndGet(franja(id), reloj.incrementAndGet(), Math::max);
+        Usuario anterior = porId.getIfPresent(id);
+        porId.invalidate(id);
+        if (anterior != null && anterior.getCorreo() != null) {
+            idPorCorreo.invalidate(normalizar(anterior.getCorreo()));
+        }
+    }
+
+    public void invalidar(Usuario usuario) {
+        invalidar(usuario.getId());
+        if (usuario.getCorreo() != null) {
+            idPorCorreo.invalidate(normalizar(usuario.getCorreo()));
+        }
+    }
+
+    // Guarda y después comprueba el sello: una invalidación llegada durante la carga retira aquí la entrada
+    // y una que llegue tras el put la borra ella misma
+    private void poner(Usuario usuario, long inicio) {
+        Long id = usuario.getId();
+        Usuario copia = copiar(usuario);
+        porId.put(id, copia);
+        idPorCorreo.put(normalizar(usuario.getCorreo()), id);
+        if (invalidadoDesde(id, inicio)) {
+            porId.asMap().remove(id, copia);
+        }
+    }
+
+    private boolean invalidadoDesde(Long id, long inicio) {
+        return invalidaciones.get(franja(id)) > inicio;
+    }
+
+    private static int franja(Long id) {
+        return Long.hashCode(id) & (FRANJAS - 1);
+    }
+
+    private <T> T cargar(Supplier<T> cargador) {
+        return cargaTimer.record(cargador);
+    }
+
+    static String normalizar(String correo) {
+        return correo.toLowerCase(Locale.ROOT);
+    }
+
+    private static Usuario copiar(Usuario u) {
+        return new Usuario(u.getId(), u.getNombre(), u.getCorreo(), u.getRol(),
+                u.getContrasena(), u.getFechaRegistro(), u.getActivo(), u.getFechaActualizacion());
+    }
+}
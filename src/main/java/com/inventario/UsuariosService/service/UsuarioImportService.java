@@ -0,0 +1,299 @@
+package com.inventario.UsuariosService.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.UsuariosService.repository.UsuarioRepository;
+import com.inventario.UsuariosService.service.AuditoriaService.TipoEvento;
+import com.inventario.UsuariosService.service.CambiosUsuarioService.Operacion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Importación masiva de usuarios desde CSV (nombre,correo,rol,contrasena; comillas según RFC 4180) o NDJSON.
+ * Procesa el fichero por bloques: comprobación de duplicados con una consulta IN por bloque,
+ * hashing en paralelo en el pool de PasswordHashingService e inserción con batch JDBC
+ * (el id IDENTITY impide el batching de Hibernate). Nunca mantiene el fichero completo en memoria.
+ * Cada usuario creado genera su evento USUARIO_CREADO en la auditoría, igual que un alta por la API.
+ */
+@Service
+public class UsuarioImportService {
+    private static final Logger logger = LoggerFactory.getLogger(UsuarioImportService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO usuarios (nombre, correo, rol, contrasena, fecha_registro, activo, fecha_actualizacion) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_REGISTRO_CSV = 16 * 1024;
+
+    private final UsuarioRepository usuarioRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final CorreosActivosIndex correosActivos;
+    private final EscriturasRecientes escriturasRecientes;
+    private final CambiosUsuarioService registroCambios;
+    private final AuditoriaService auditoria;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int tamanoBloque;
+
+    public UsuarioImportService(UsuarioRepository usuarioRepository,
+                                PasswordHashingService passwordHashingService,
+                                CorreosActivosIndex correosActivos,
+                                EscriturasRecientes escriturasRecientes,
+                                CambiosUsuarioService registroCambios,
+                                AuditoriaService auditoria,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${usuarios.import.chunk-size:500}") int tamanoBloque) {
+        this.usuarioRepository = usuarioRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.correosActivos = correosActivos;
+        this.escriturasRecientes = escriturasRecientes;
+        this.registroCambios = registroCambios;
+        this.auditoria = auditoria;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    // Lee el fichero línea a línea y emite un resultado por fila a medida que se procesa cada bloque
+    public void importar(BufferedReader lector, boolean csv, Consumer<Map<String, Object>> reporte) throws IOException {
+        List<Fila> bloque = new ArrayList<>(tamanoBloque);
+        String linea;
+        int numero = 0;
+        boolean cabecera = csv;
+        while ((linea = lector.readLine()) != null) {
+            numero++;
+            if (linea.isBlank()) {
+                continue;
+            }
+            int inicio = numero;
+            List<String> campos = null;
+            if (csv) {
+                // Un campo entre comillas puede contener saltos de línea: se añaden líneas hasta cerrarlo,
+                // con un máximo para que unas comillas sin cerrar no acaben leyendo el resto del fichero
+                campos = camposCsv(linea);
+                String siguiente;
+                while (campos == null && linea.length() < MAX_REGISTRO_CSV && (siguiente = lector.readLine()) != null) {
+                    numero++;
+                    linea = linea + "\n" + siguiente;
+                    campos = camposCsv(linea);
+                }
+            }
+            if (cabecera) {
+                cabecera = false;
+                if (linea.toLowerCase(Locale.ROOT).startsWith("nombre")) {
+                    continue;
+                }
+            }
+            bloque.add(csv ? filaCsv(inicio, campos) : parsearJson(numero, linea));
+            if (bloque.size() == tamanoBloque) {
+                procesarBloque(bloque, reporte);
+                bloque = new ArrayList<>(tamanoBloque);
+            }
+        }
+        if (!bloque.isEmpty()) {
+            procesarBloque(bloque, reporte);
+        }
+    }
+
+    private void procesarBloque(List<Fila> bloque, Consumer<Map<String, Object>> reporte) {
+        // Duplicados dentro del bloque y contra la base de datos (una sola consulta)
+        Set<String> vistos = new HashSet<>();
+        List<String> correos = new ArrayList<>();
+        for (Fila fila : bloque) {
+            if (fila.error == null) {
+                correos.add(fila.correo);
+            }
+        }
+        Set<String> existentes = new HashSet<>();
+        if (!correos.isEmpty()) {
+            usuarioRepository.findCorreosExistentes(correos).forEach(c -> existentes.add(normalizar(c)));
+        }
+
+        List<Fila> validas = new ArrayList<>();
+        for (Fila fila : bloque) {
+            if (fila.error != null) {
+                reporte.accept(resultado(fila, "ERROR", fila.error));
+            } else if (existentes.contains(normalizar(fila.correo)) || !vistos.add(normalizar(fila.correo))) {
+                reporte.accept(resultado(fila, "DUPLICADO", "El correo ya existe"));
+            } else {
+                validas.add(fila);
+            }
+        }
+        if (validas.isEmpty()) {
+            return;
+        }
+
+        List<String> hashes;
+        try {
+            hashes = passwordHashingService.encodeLote(validas.stream().map(f -> f.contrasena).toList());
+        } catch (RuntimeException e) {
+            validas.forEach(f -> reporte.accept(resultado(f, "ERROR", e.getMessage())));
+            return;
+        }
+
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> parametros = new ArrayList<>(validas.size());
+        for (int i = 0; i < validas.size(); i++) {
+            Fila f = validas.get(i);
+            parametros.add(new Object[]{f.nombre, f.correo, f.rol, hashes.get(i), ahora, true, ahora});
+        }
+
+        try {
+            Map<String, Long> ids = transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, parametros);
+                return registrarCambios(validas.stream().map(f -> f.correo).toList());
+            });
+            escriturasRecientes.registrar();
+            for (Fila f : validas) {
+                creado(f, ids, reporte);
+            }
+        } catch (DataAccessException e) {
+            // Otro proceso insertó alguno de los correos entre la comprobación y el insert: fila a fila
+            logger.warn("Batch de importación fallido, reintentando fila a fila: {}", e.getMessage());
+            for (int i = 0; i < validas.size(); i++) {
+                Fila f = validas.get(i);
+                Object[] fila = parametros.get(i);
+                try {
+                    Map<String, Long> ids = transactionTemplate.execute(status -> {
+                        jdbcTemplate.update(INSERT_SQL, fila);
+                        return registrarCambios(List.of(f.correo));
+                    });
+                    escriturasRecientes.registrar();
+                    creado(f, ids, reporte);
+                } catch (DuplicateKeyException duplicado) {
+                    reporte.accept(resultado(f, "DUPLICADO", "El correo ya existe"));
+                } catch (DataAccessException filaError) {
+                    reporte.accept(resultado(f, "ERROR", filaError.getMostSpecificCause().getMessage()));
+                }
+            }
+        }
+    }
+
+    // Entradas del registro de cambios para las filas recién insertadas, en la misma transacción.
+    // Devuelve el id asignado a cada correo (normalizado) para la auditoría.
+    private Map<String, Long> registrarCambios(List<String> correos) {
+        String marcadores = String.join(",", Collections.nCopies(correos.size(), "?"));
+        Map<String, Long> ids = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, correo FROM usuarios WHERE correo IN (" + marcadores + ") ORDER BY id",
+                rs -> {
+                    ids.put(normalizar(rs.getString(2)), rs.getLong(1));
+                }, correos.toArray());
+        registroCambios.registrar(Operacion.GUARDADO, List.copyOf(ids.values()));
+        return ids;
+    }
+
+    // Tras el commit: índice de correos activos, auditoría y resultado de la fila
+    private void creado(Fila f, Map<String, Long> ids, Consumer<Map<String, Object>> reporte) {
+        correosActivos.agregar(f.correo);
+        auditoria.registrar(TipoEvento.USUARIO_CREADO, f.correo, ids.get(normalizar(f.correo)), null, "importación");
+        reporte.accept(resultado(f, "CREADO", null));
+    }
+
+    private static Fila filaCsv(int numero, List<String> campos) {
+        if (campos == null) {
+            return Fila.invalida(numero, null, "Comillas sin cerrar");
+        }
+        if (campos.size() != 4) {
+            return Fila.invalida(numero, null, "Se esperaban 4 columnas: nombre,correo,rol,contrasena");
+        }
+        return Fila.de(numero, campos.get(0).trim(), campos.get(1).trim(), campos.get(2).trim(), campos.get(3));
+    }
+
+    // Campos de un registro CSV (RFC 4180): un campo entre comillas puede contener comas, saltos de línea
+    // y comillas escritas como "". Devuelve null si el registro termina con unas comillas abiertas.
+    static List<String> camposCsv(String registro) {
+        List<String> campos = new ArrayList<>(4);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < registro.length(); i++) {
+            char c = registro.charAt(i);
+            if (entreComillas) {
+                if (c != '"') {
+                    campo.append(c);
+                } else if (i + 1 < registro.length() && registro.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    entreComillas = false;
+                }
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '"' && campo.toString().isBlank()) {
+                // Comillas al inicio del campo (se toleran espacios delante)
+                campo.setLength(0);
+                entreComillas = true;
+            } else {
+                campo.append(c);
+            }
+        }
+        if (entreComillas) {
+            return null;
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private Fila parsearJson(int numero, String linea) {
+        try {
+            JsonNode nodo = objectMapper.readTree(linea);
+            return Fila.de(numero, nodo.path("nombre").asText(null), nodo.path("correo").asText(null),
+                    nodo.path("rol").asText(null), nodo.path("contrasena").asText(null));
+        } catch (IOException e) {
+            return Fila.invalida(numero, null, "JSON no válido");
+        }
+    }
+
+    private static Map<String, Object> resultado(Fila fila, String estado, String mensaje) {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("linea", fila.linea);
+        r.put("correo", fila.correo);
+        r.put("estado", estado);
+        if (mensaje != null) {
+            r.put("mensaje", mensaje);
+        }
+        return r;
+    }
+
+    private static String normalizar(String correo) {
+        return correo.toLowerCase(Locale.ROOT);
+    }
+
+    private record Fila(int linea, String nombre, String correo, String rol, String contrasena, String error) {
+
+        static Fila de(int linea, String nombre, String correo, String rol, String contrasena) {
+            if (nombre == null || nombre.isBlank() || correo == null || correo.isBlank()
+                    || rol == null || rol.isBlank() || contrasena == null || contrasena.isEmpty()) {
+                return new Fila(linea, nombre, correo, rol, null, "Faltan campos obligatorios");
+            }
+            return new Fila(linea, nombre, correo, rol, contrasena, null);
+        }
+
+        static Fila invalida(int linea, String correo, String error) {
+            return new Fila(linea, null, correo, null, null, error);
+        }
+    }
+}
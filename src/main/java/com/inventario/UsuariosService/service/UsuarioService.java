@@ -1,22 +1,88 @@
 package com.inventario.UsuariosService.service;
 
+import com.inventario.UsuariosService.dto.CambioUsuario;
+import com.inventario.UsuariosService.dto.ProyeccionInterna;
+import com.inventario.UsuariosService.dto.UsuarioCambios;
+import com.inventario.UsuariosService.dto.UsuarioResumen;
 import com.inventario.UsuariosService.entity.Usuario;
 import com.inventario.UsuariosService.repository.UsuarioRepository;
+import com.inventario.UsuariosService.service.AuditoriaService.TipoEvento;
+import com.inventario.UsuariosService.service.CambiosUsuarioService.Operacion;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+// Tiempo de cada método público (etiquetas class/method), con histograma para percentiles
+@Timed(value = "usuarios.service", histogram = true)
 @Service
 public class UsuarioService {
+    private static final int MYSQL_CLAVE_DUPLICADA = 1062;
+
     // Devuelve todos los usuarios, activos e inactivos
     public List<Usuario> getAllUsuariosIncluyendoInactivos() {
         return usuarioRepository.findAll();
     }
+
+    // Página de usuarios con id mayor que despuesDe, sin contraseña; rol y activo son filtros opcionales
+    public List<UsuarioResumen> listarResumen(Long despuesDe, int limite, String rol, Boolean activo) {
+        return usuarioRepository.findResumenDespuesDe(despuesDe != null ? despuesDe : 0L, rol, activo,
+                PageRequest.of(0, limite));
+    }
+
+    // Recorre todos los usuarios fila a fila; la transacción mantiene abierto el cursor mientras dura el recorrido
+    @Transactional(readOnly = true)
+    public void recorrerResumen(String rol, Boolean activo, Consumer<UsuarioResumen> consumidor) {
+        try (Stream<UsuarioResumen> usuarios = usuarioRepository.streamResumen(rol, activo)) {
+            usuarios.forEach(consumidor);
+        }
+    }
     private final UsuarioRepository usuarioRepository;
+    private final CorreosActivosIndex correosActivos;
+    private final UsuarioCache usuarioCache;
+    private final ProyeccionInternaCache proyecciones;
+    private final RevocacionTokenService revocacionTokenService;
+    private final RefreshTokenService refreshTokenService;
+    private final AuditoriaService auditoria;
+    private final EscriturasRecientes escriturasRecientes;
+    private final CambiosUsuarioService registroCambios;
+    private final BusquedaUsuariosIndex busqueda;
+    private final TransactionTemplate transaccion;
 
-    public UsuarioService(UsuarioRepository usuarioRepository) {
+    public UsuarioService(UsuarioRepository usuarioRepository,
+                          CorreosActivosIndex correosActivos,
+                          UsuarioCache usuarioCache,
+                          ProyeccionInternaCache proyecciones,
+                          RevocacionTokenService revocacionTokenService,
+                          RefreshTokenService refreshTokenService,
+                          AuditoriaService auditoria,
+                          EscriturasRecientes escriturasRecientes,
+                          CambiosUsuarioService registroCambios,
+                          BusquedaUsuariosIndex busqueda,
+                          TransactionTemplate transaccion) {
         this.usuarioRepository = usuarioRepository;
+        this.correosActivos = correosActivos;
+        this.usuarioCache = usuarioCache;
+        this.proyecciones = proyecciones;
+        this.revocacionTokenService = revocacionTokenService;
+        this.refreshTokenService = refreshTokenService;
+        this.auditoria = auditoria;
+        this.escriturasRecientes = escriturasRecientes;
+        this.registroCambios = registroCambios;
+        this.busqueda = busqueda;
+        this.transaccion = transaccion;
     }
 
     public List<Usuario> getAllUsuarios() {
@@ -24,28 +90,132 @@ public class UsuarioService {
     }
 
     public boolean hasAnyUsuarios() {
-        return usuarioRepository.count() > 0;
+        return usuarioRepository.existsByIdNotNull();
     }
 
     public Optional<Usuario> getUsuarioById(Long id) {
-        return usuarioRepository.findById(id);
+        return usuarioCache.getPorId(id, usuarioRepository::findById);
+    }
+
+    // Consulta por lotes para otros microservicios; incluye usuarios inactivos, como getUsuarioById
+    public Map<Long, Usuario> getUsuariosPorIds(Collection<Long> ids) {
+        return usuarioCache.getTodosPorId(ids, usuarioRepository::findAllById);
+    }
+
+    // Proyección interna ya serializada; un acierto no toca UsuarioCache ni Jackson
+    public Optional<ProyeccionInterna> getProyeccionInterna(Long id) {
+        ProyeccionInterna cacheada = proyecciones.getIfPresent(id);
+        if (cacheada != null) {
+            return Optional.of(cacheada);
+        }
+        return getUsuarioById(id).map(proyecciones::de);
+    }
+
+    public ProyeccionInterna proyeccionInterna(Usuario usuario) {
+        return proyecciones.de(usuario);
+    }
+
+    // Registro de cambios posteriores a "desde" (ver CambiosUsuarioService)
+    public List<CambioUsuario> getCambios(long desde, int limite) {
+        return registroCambios.listar(desde, limite);
+    }
+
+    public void recorrerCambios(long desde, int limite, Consumer<CambioUsuario> consumidor) {
+        registroCambios.recorrer(desde, limite, consumidor);
+    }
+
+    // Búsqueda por fragmento de nombre o correo en el índice en memoria, sin consultar MySQL. Con el índice
+    // desactivado, por encima de su max-usuarios o aún cargando, la hace la base de datos.
+    public BusquedaUsuariosIndex.Resultado buscar(String texto, String rol, Boolean activo, int limite) {
+        BusquedaUsuariosIndex.Resultado resultado = busqueda.buscar(texto, rol, activo, limite);
+        return resultado != null ? resultado : buscarEnBaseDeDatos(texto, rol, activo, limite);
+    }
+
+    // Un resultado de más indica si hay otros que no caben en el límite
+    private BusquedaUsuariosIndex.Resultado buscarEnBaseDeDatos(String texto, String rol, Boolean activo, int limite) {
+        String patron = texto.trim().toLowerCase(Locale.ROOT).replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        List<UsuarioResumen> usuarios = usuarioRepository.buscarResumen("%" + patron + "%", patron + "%",
+                "% " + patron + "%", rol != null ? rol.toUpperCase(Locale.ROOT) : null, activo,
+                PageRequest.of(0, limite + 1));
+        boolean truncado = usuarios.size() > limite;
+        return new BusquedaUsuariosIndex.Resultado(truncado ? usuarios.subList(0, limite) : usuarios, truncado);
+    }
+
+    // Devuelve los usuarios indexados por correo en minúsculas
+    public Map<String, Usuario> getUsuariosPorCorreos(Collection<String> correos) {
+        return usuarioCache.getTodosPorCorreo(correos, usuarioRepository::findByCorreoIn);
     }
 
     public Usuario saveUsuario(Usuario usuario) {
-        return usuarioRepository.save(usuario);
+        TipoEvento tipo = usuario.getId() == null ? TipoEvento.USUARIO_CREADO : TipoEvento.USUARIO_ACTUALIZADO;
+        return auditar(tipo, guardar(usuario));
     }
 
-    public Usuario updateUsuario(Long id, Usuario usuario) {
-        usuario.setId(id);
-        return usuarioRepository.save(usuario);
+    // Actualización parcial en una sola sentencia: los campos nulos de "cambios" no se tocan y la
+    // contraseña nunca se modifica por aquí (ver cambiarContrasena). Vacío si el id no existe.
+    public Optional<Usuario> updateUsuario(Long id, UsuarioCambios cambios) {
+        usuarioCache.invalidar(id);
+        proyecciones.invalidar(id);
+        int filas;
+        try {
+            filas = transaccion.execute(status -> {
+                int n = usuarioRepository.actualizarParcial(id, cambios.nombre(), cambios.correo(),
+                        cambios.rol(), cambios.activo(), LocalDateTime.now());
+                if (n > 0) {
+                    registroCambios.registrar(Operacion.GUARDADO, id);
+                }
+                return n;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw traducirDuplicado(e, cambios.correo());
+        }
+        escriturasRecientes.registrar();
+        // Una lectura concurrente pudo volver a cachear la fila anterior mientras la transacción seguía abierta
+        usuarioCache.invalidar(id);
+        proyecciones.invalidar(id);
+        if (filas == 0) {
+            return Optional.empty();
+        }
+        Optional<Usuario> actualizado = getUsuarioById(id);
+        actualizado.ifPresent(u -> {
+            actualizarIndice(u);
+            if (Boolean.FALSE.equals(cambios.activo())) {
+                revocarSesiones(u);
+            }
+            auditar(TipoEvento.USUARIO_ACTUALIZADO, u);
+        });
+        return actualizado;
     }
 
-    public void deleteUsuario(Long id) {
-        usuarioRepository.deleteById(id);
+    // Borrado por número de filas afectadas; el usuario (normalmente ya en caché) solo se necesita
+    // para revocar sus tokens por correo. false si no existía.
+    public boolean deleteUsuario(Long id) {
+        Optional<Usuario> usuario = getUsuarioById(id);
+        int filas = transaccion.execute(status -> {
+            int n = usuarioRepository.eliminarPorId(id);
+            if (n > 0) {
+                registroCambios.registrar(Operacion.ELIMINADO, id);
+            }
+            return n;
+        });
+        escriturasRecientes.registrar();
+        usuarioCache.invalidar(id);
+        proyecciones.invalidar(id);
+        if (filas == 0) {
+            return false;
+        }
+        busqueda.eliminar(id);
+        usuario.ifPresent(this::revocarSesiones);
+        usuario.ifPresent(u -> auditar(TipoEvento.USUARIO_ELIMINADO, u));
+        return true;
     }
 
     public Optional<Usuario> buscarPorCorreo(String correo) {
-        return usuarioRepository.findByCorreoAndActivoTrue(correo);
+        // Correos que no están en el índice de activos no llegan a MySQL
+        if (!correosActivos.puedeExistir(correo)) {
+            return Optional.empty();
+        }
+        return usuarioCache.getActivoPorCorreo(correo, usuarioRepository::findByCorreoAndActivoTrue);
     }
 
     public Usuario cambiarContrasena(Long id, String nuevaContrasena) {
@@ -53,17 +223,28 @@ public class UsuarioService {
         if (usuarioOpt.isPresent()) {
             Usuario usuario = usuarioOpt.get();
             usuario.setContrasena(nuevaContrasena);
-            return usuarioRepository.save(usuario);
+            Usuario guardado = guardar(usuario);
+            revocarSesiones(guardado);
+            return auditar(TipoEvento.CONTRASENA_CAMBIADA, guardado);
         }
         return null;
     }
 
+    // Migración transparente del hash tras un login correcto; no revoca sesiones porque la contraseña es la misma
+    public void actualizarHashContrasena(Long id, String hashAnterior, String hashNuevo) {
+        if (usuarioRepository.actualizarHashContrasena(id, hashAnterior, hashNuevo, LocalDateTime.now()) > 0) {
+            escriturasRecientes.registrar();
+            usuarioCache.invalidar(id);
+            proyecciones.invalidar(id);
+        }
+    }
+
     public Usuario activarUsuario(Long id) {
         Optional<Usuario> usuarioOpt = usuarioRepository.findById(id);
         if (usuarioOpt.isPresent()) {
             Usuario usuario = usuarioOpt.get();
             usuario.setActivo(true);
-            return usuarioRepository.save(usuario);
+            return auditar(TipoEvento.USUARIO_ACTIVADO, guardar(usuario));
         }
         return null;
     }
@@ -73,8 +254,65 @@ public class UsuarioService {
         if (usuarioOpt.isPresent()) {
             Usuario usuario = usuarioOpt.get();
             usuario.setActivo(false);
-            return usuarioRepository.save(usuario);
+            Usuario guardado = guardar(usuario);
+            revocarSesiones(guardado);
+            return auditar(TipoEvento.USUARIO_DESACTIVADO, guardado);
         }
         return null;
     }
+
+    // Access tokens emitidos hasta ahora y todos los refresh tokens del usuario dejan de valer
+    private void revocarSesiones(Usuario usuario) {
+        revocacionTokenService.revocarTokensDeUsuario(usuario.getCorreo());
+        refreshTokenService.revocarDeUsuario(usuario.getId());
+    }
+
+    private Usuario auditar(TipoEvento tipo, Usuario usuario) {
+        auditoria.registrar(tipo, usuario.getCorreo(), usuario.getId());
+        return usuario;
+    }
+
+    // Toda escritura invalida la caché antes y después de guardar (correo anterior y nuevo)
+    private Usuario guardar(Usuario usuario) {
+        usuarioCache.invalidar(usuario.getId());
+        proyecciones.invalidar(usuario.getId());
+        Usuario guardado;
+        try {
+            // El guardado y su entrada en el registro de cambios se confirman juntos
+            guardado = transaccion.execute(status -> {
+                Usuario g = usuarioRepository.save(usuario);
+                registroCambios.registrar(Operacion.GUARDADO, g.getId());
+                return g;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw traducirDuplicado(e, usuario.getCorreo());
+        }
+        // Las lecturas que siguen (recarga de caché, login) van al primario y no a una réplica con retraso
+        escriturasRecientes.registrar();
+        usuarioCache.invalidar(guardado);
+        proyecciones.invalidar(guardado.getId());
+        return actualizarIndice(guardado);
+    }
+
+    // La única restricción única además de la clave primaria es la de correo (error 1062 de MySQL)
+    private static RuntimeException traducirDuplicado(DataIntegrityViolationException e, String correo) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException sql && sql.getErrorCode() == MYSQL_CLAVE_DUPLICADA) {
+                return new CorreoDuplicadoException(correo, e);
+            }
+        }
+        return e;
+    }
+
+    // Mantener el índice de correos activos y el de búsqueda al día tras cada escritura.
+    // En deleteUsuario no se conoce el correo; la entrada sobrante solo genera una consulta normal.
+    private Usuario actualizarIndice(Usuario usuario) {
+        if (Boolean.TRUE.equals(usuario.getActivo())) {
+            correosActivos.agregar(usuario.getCorreo());
+        } else {
+            correosActivos.eliminar(usuario.getCorreo());
+        }
+        busqueda.actualizar(usuario);
+        return usuario;
+    }
 }
@@ -0,0 +1,17 @@
+package com.inventario.UsuariosService.util;
+
+/**
+ * Vista inmutable de los claims de un token JWT ya verificado.
+ * Se obtiene una sola vez por token y se reutiliza desde la caché de {@link JwtUtil}.
+ */
+public record JwtClaims(String correo, String nombre, String rol, String jti,
+                        long emitidoEnMillis, long expiraEnMillis) {
+
+    public boolean isExpirado() {
+        return expiraEnMillis <= System.currentTimeMillis();
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(rol);
+    }
+}
@@ -0,0 +1,162 @@
+package com.inventario.UsuariosService.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claves JWT construidas una sola vez al arrancar.
+ * En ES256 firma con la clave privada configurada y publica las públicas en el JWKS, incluidas
+ * las retiradas que siguen siendo válidas durante una rotación. Sin par de claves, o con
+ * jwt.algorithm=HS512, firma con jwt.secret.
+ */
+@Component
+public class JwtKeyProvider extends SigningKeyResolverAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyProvider.class);
+
+    private final SignatureAlgorithm algoritmo;
+    private final String kidActivo;
+    private final Key claveFirma;
+    // kid -> clave de verificación (activa y retiradas)
+    private final Map<String, Key> clavesVerificacion = new LinkedHashMap<>();
+
+    public JwtKeyProvider(@Value("${jwt.algorithm:ES256}") String algoritmo,
+                          @Value("${jwt.secret:}") String secret,
+                          @Value("${jwt.private-key:}") String privateKeyPem,
+                          @Value("${jwt.public-key:}") String publicKeyPem,
+                          @Value("${jwt.key-id:}") String keyId,
+                          @Value("${jwt.retired-public-keys:}") String clavesRetiradas) {
+        SignatureAlgorithm solicitado = SignatureAlgorithm.forName(algoritmo);
+        if (solicitado == SignatureAlgorithm.ES256 && (privateKeyPem.isBlank() || publicKeyPem.isBlank())) {
+            // Sin par de claves configurado se mantiene el secreto compartido para que todas las instancias
+            // sigan aceptando los tokens de las demás
+            logger.warn("jwt.private-key/jwt.public-key no configuradas; se firma con HS512 y jwt.secret");
+            solicitado = SignatureAlgorithm.HS512;
+        }
+        this.algoritmo = solicitado;
+        try {
+            if (this.algoritmo.isHmac()) {
+                if (secret.isBlank()) {
+                    throw new IllegalStateException("jwt.secret es obligatorio con " + this.algoritmo.getValue());
+                }
+                this.claveFirma = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+                this.kidActivo = keyId.isBlank() ? "hmac" : keyId;
+                clavesVerificacion.put(kidActivo, claveFirma);
+            } else if (this.algoritmo == SignatureAlgorithm.ES256) {
+                this.claveFirma = privadaEc(privateKeyPem);
+                PublicKey publica = publicaEc(publicKeyPem);
+                this.kidActivo = keyId.isBlank() ? huella(publica) : keyId;
+                clavesVerificacion.put(kidActivo, publica);
+                for (String entrada : clavesRetiradas.split(";")) {
+                    if (entrada.isBlank()) {
+                        continue;
+                    }
+                    String[] partes = entrada.trim().split(":", 2);
+                    if (partes.length != 2) {
+                        throw new IllegalStateException("jwt.retired-public-keys debe tener el formato kid:clave;kid:clave");
+                    }
+                    clavesVerificacion.put(partes[0], publicaEc(partes[1]));
+                }
+            } else {
+                throw new IllegalStateException("Algoritmo JWT no soportado: " + algoritmo);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudieron cargar las claves JWT", e);
+        }
+    }
+
+    public SignatureAlgorithm getAlgoritmo() {
+        return algoritmo;
+    }
+
+    public String getKidActivo() {
+        return kidActivo;
+    }
+
+    public Key getClaveFirma() {
+        return claveFirma;
+    }
+
+    // Los tokens sin kid (emitidos antes de la rotación) se verifican con la clave activa
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String kid = header.getKeyId();
+        Key clave = clavesVerificacion.get(kid != null ? kid : kidActivo);
+        if (clave == null) {
+            throw new UnsupportedJwtException("kid desconocido: " + kid);
+        }
+        return clave;
+    }
+
+    // Conjunto JWKS con las claves públicas; vacío en modo HMAC
+    public Map<String, Object> jwks() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        clavesVerificacion.forEach((kid, clave) -> {
+            if (clave instanceof ECPublicKey ec) {
+                Map<String, Object> jwk = new LinkedHashMap<>();
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-256");
+                jwk.put("use", "sig");
+                jwk.put("alg", "ES256");
+                jwk.put("kid", kid);
+                jwk.put("x", coordenada(ec.getW().getAffineX()));
+                jwk.put("y", coordenada(ec.getW().getAffineY()));
+                keys.add(jwk);
+            }
+        });
+        return Map.of("keys", keys);
+    }
+
+    private static PrivateKey privadaEc(String pem) throws GeneralSecurityException {
+        return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(decodificarPem(pem)));
+    }
+
+    private static PublicKey publicaEc(String pem) throws GeneralSecurityException {
+        return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(decodificarPem(pem)));
+    }
+
+    // Acepta PEM completo o solo el Base64 del DER
+    private static byte[] decodificarPem(String pem) {
+        String base64 = pem.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+
+    private static String huella(PublicKey clave) throws GeneralSecurityException {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(clave.getEncoded());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 12));
+    }
+
+    // Coordenada de P-256 como 32 bytes big-endian sin signo, en Base64url
+    private static String coordenada(BigInteger valor) {
+        byte[] bytes = valor.toByteArray();
+        byte[] fijo = new byte[32];
+        int copiar = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - copiar, fijo, 32 - copiar, copiar);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fijo);
+    }
+}
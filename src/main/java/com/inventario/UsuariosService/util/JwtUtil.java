@@ -1,25 +1,52 @@
 package com.inventario.UsuariosService.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
-    
-    private static final String SECRET = "InventarioSecretKeyForJWTTokenGenerationThatMustBeLongEnoughForHS512AlgorithmRequirements2025";
-    private static final int JWT_TOKEN_VALIDITY = 5 * 60 * 60; // 5 horas
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET.getBytes());
+    private static final String CLAIM_EMITIDO_MILLIS = "iat_ms";
+
+    private final JwtKeyProvider keyProvider;
+    // El parser es inmutable y seguro entre hilos: se construye una vez con el resolvedor de claves por kid
+    private final JwtParser parser;
+    private final long validezMillis;
+
+    // Claims ya verificados, indexados por el token tal cual y expirados en el "exp" del propio token.
+    // Sin hash intermedio: equals sobre unos cientos de bytes es más barato que un SHA-256 por petición
+    // y la clave solo coincide con el mismo token ya verificado. 10.000 entradas son unos pocos MB.
+    private final Cache<String, JwtClaims> claimsCache;
+
+    public JwtUtil(JwtKeyProvider keyProvider,
+                   MeterRegistry meterRegistry,
+                   @Value("${jwt.expiration:3600}") long expiracionSegundos,
+                   @Value("${jwt.claims-cache.max-size:10000}") long claimsCacheMaxSize) {
+        this.keyProvider = keyProvider;
+        this.parser = Jwts.parserBuilder().setSigningKeyResolver(keyProvider).build();
+        this.validezMillis = expiracionSegundos * 1000;
+        this.claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new ExpiraEnToken())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, claimsCache, "jwt.claims");
     }
 
     // Generar token para usuario
@@ -31,33 +58,57 @@ public class JwtUtil {
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
+        long ahora = System.currentTimeMillis();
         return Jwts.builder()
                 .setClaims(claims)
+                // iat tiene precisión de segundos; la revocación por usuario compara en milisegundos
+                .claim(CLAIM_EMITIDO_MILLIS, ahora)
                 .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + JWT_TOKEN_VALIDITY * 1000))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .setId(UUID.randomUUID().toString())
+                .setHeaderParam(JwsHeader.KEY_ID, keyProvider.getKidActivo())
+                .setIssuedAt(new Date(ahora))
+                .setExpiration(new Date(ahora + validezMillis))
+                .signWith(keyProvider.getClaveFirma(), keyProvider.getAlgoritmo())
                 .compact();
     }
 
+    // Parsear y verificar el token una sola vez; las siguientes llamadas salen de la caché.
+    // Lanza JwtException si la firma no es válida o el token ha expirado.
+    public JwtClaims extractClaims(String token) {
+        JwtClaims cached = claimsCache.getIfPresent(token);
+        if (cached != null && !cached.isExpirado()) {
+            return cached;
+        }
+        Claims claims = extractAllClaims(token);
+        JwtClaims verificados = new JwtClaims(
+                claims.getSubject(),
+                claims.get("nombre", String.class),
+                claims.get("rol", String.class),
+                claims.getId(),
+                emitidoEnMillis(claims),
+                claims.getExpiration().getTime());
+        claimsCache.put(token, verificados);
+        return verificados;
+    }
+
     // Extraer correo del token
     public String extractCorreo(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return extractClaims(token).correo();
     }
 
     // Extraer fecha de expiración
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return new Date(extractClaims(token).expiraEnMillis());
     }
 
     // Extraer rol del token
     public String extractRol(String token) {
-        return extractClaim(token, claims -> claims.get("rol", String.class));
+        return extractClaims(token).rol();
     }
 
     // Extraer nombre del token
     public String extractNombre(String token) {
-        return extractClaim(token, claims -> claims.get("nombre", String.class));
+        return extractClaims(token).nombre();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -65,28 +116,46 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // Tokens anteriores a iat_ms: el inicio del segundo de iat (el lado seguro frente a una revocación)
+    private static long emitidoEnMillis(Claims claims) {
+        Number millis = claims.get(CLAIM_EMITIDO_MILLIS, Number.class);
+        if (millis != null) {
+            return millis.longValue();
+        }
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L;
     }
 
-    // Verificar si el token ha expirado
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Claims extractAllClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
     // Validar token
     public Boolean validateToken(String token, String correo) {
-        final String extractedCorreo = extractCorreo(token);
-        return (extractedCorreo.equals(correo) && !isTokenExpired(token));
+        final JwtClaims claims = extractClaims(token);
+        return (claims.correo().equals(correo) && !claims.isExpirado());
     }
 
     // Verificar si el usuario tiene rol ADMIN
     public Boolean isAdmin(String token) {
-        String rol = extractRol(token);
-        return "ADMIN".equals(rol);
+        return extractClaims(token).isAdmin();
+    }
+
+    // Cada entrada vive exactamente hasta el "exp" del token que la generó
+    private static class ExpiraEnToken implements Expiry<String, JwtClaims> {
+        @Override
+        public long expireAfterCreate(String key, JwtClaims value, long currentTime) {
+            long restanteMillis = value.expiraEnMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(restanteMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtClaims value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtClaims value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -0,0 +1,48 @@
+-- Esquema tal como lo generaba hibernate.ddl-auto=update. IF NOT EXISTS permite aplicarlo
+-- sobre bases de datos ya creadas por Hibernate (baseline-on-migrate con versión 0).
+
+CREATE TABLE IF NOT EXISTS usuarios (
+    id                  BIGINT       NOT NULL AUTO_INCREMENT,
+    nombre              VARCHAR(100) NOT NULL,
+    correo              VARCHAR(100) NOT NULL,
+    rol                 VARCHAR(20)  NOT NULL,
+    contrasena          VARCHAR(255) NOT NULL,
+    fecha_registro      DATETIME(6)  NOT NULL,
+    activo              BIT          NOT NULL,
+    fecha_actualizacion DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_usuarios_correo UNIQUE (correo)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS revocaciones_token (
+    clave       VARCHAR(150) NOT NULL,
+    revocado_en BIGINT       NOT NULL,
+    expira_en   BIGINT       NOT NULL,
+    PRIMARY KEY (clave),
+    INDEX idx_revocaciones_expira_en (expira_en)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    hash       VARCHAR(64) NOT NULL,
+    usuario_id BIGINT      NOT NULL,
+    familia    VARCHAR(36) NOT NULL,
+    expira_en  BIGINT      NOT NULL,
+    usado      BIT         NOT NULL,
+    PRIMARY KEY (hash),
+    INDEX idx_refresh_tokens_usuario (usuario_id),
+    INDEX idx_refresh_tokens_familia (familia),
+    INDEX idx_refresh_tokens_expira_en (expira_en)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS eventos_auditoria (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    tipo       VARCHAR(40)  NOT NULL,
+    correo     VARCHAR(150),
+    usuario_id BIGINT,
+    ip         VARCHAR(45),
+    detalle    VARCHAR(255),
+    fecha      BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_eventos_auditoria_correo (correo),
+    INDEX idx_eventos_auditoria_fecha (fecha)
+) ENGINE = InnoDB;
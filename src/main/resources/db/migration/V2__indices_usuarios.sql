@@ -0,0 +1,5 @@
+-- Login: findByCorreoAndActivoTrue se resuelve solo con el índice
+CREATE INDEX idx_usuarios_correo_activo ON usuarios (correo, activo);
+
+-- Listados paginados por id con filtros activo/rol (findResumenDespuesDe, streamResumen, findCorreosActivos)
+CREATE INDEX idx_usuarios_activo_rol_id ON usuarios (activo, rol, id);
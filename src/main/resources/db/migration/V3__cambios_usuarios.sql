@@ -0,0 +1,24 @@
+-- Registro de cambios de usuarios para /api/usuarios/internal/changes.
+-- La versión la asigna cambios_usuarios_version (una sola fila) dentro de la transacción que
+-- escribe el usuario: el bloqueo de esa fila hace que el orden de versiones sea el de commit.
+CREATE TABLE IF NOT EXISTS cambios_usuarios (
+    version    BIGINT      NOT NULL,
+    usuario_id BIGINT      NOT NULL,
+    operacion  VARCHAR(12) NOT NULL,
+    fecha      BIGINT      NOT NULL,
+    PRIMARY KEY (version),
+    INDEX idx_cambios_usuarios_usuario_version (usuario_id, version)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS cambios_usuarios_version (
+    id    INT    NOT NULL,
+    valor BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+-- Los usuarios existentes entran en el registro con version = id, para que since=0 los devuelva todos
+INSERT INTO cambios_usuarios (version, usuario_id, operacion, fecha)
+SELECT id, id, 'GUARDADO', 0 FROM usuarios;
+
+INSERT INTO cambios_usuarios_version (id, valor)
+SELECT 1, COALESCE(MAX(version), 0) FROM cambios_usuarios;
@@ -0,0 +1,3 @@
+-- El login (correo = ? AND activo) ya se resuelve con la clave única uk_usuarios_correo, que es la que
+-- eligen los optimizadores; idx_usuarios_correo_activo solo añadía coste a las escrituras
+DROP INDEX idx_usuarios_correo_activo ON usuarios;
@@ -0,0 +1,135 @@
+package com.inventario.UsuariosService.config;
+
+import com.inventario.UsuariosService.dto.UsuarioCambios;
+import com.inventario.UsuariosService.entity.Usuario;
+import com.inventario.UsuariosService.repository.UsuarioRepository;
+import com.inventario.UsuariosService.service.EscriturasRecientes;
+import com.inventario.UsuariosService.service.UsuarioService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Primario y réplica en dos H2 distintas; la réplica tiene otro nombre para el mismo usuario, como con retraso
+@SpringBootTest(properties = "usuarios.datasource.replica-urls=" + EnrutadorDataSourceTest.URL_REPLICA)
+@ActiveProfiles("h2")
+class EnrutadorDataSourceTest {
+
+    static final String URL_REPLICA =
+            "jdbc:h2:mem:replica-enrutador;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1";
+    private static final String INSERTAR = "INSERT INTO usuarios (id, nombre, correo, rol, contrasena, fecha_registro, activo) "
+            + "VALUES (1, ?, 'ana@x.com', 'USER', 'hash', CURRENT_TIMESTAMP, TRUE)";
+
+    @Autowired
+    private UsuarioRepository repository;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private HikariDataSource datasourcePrimario;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(URL_REPLICA, "sa", ""));
+
+    @BeforeAll
+    static void crearReplica() {
+        Flyway.configure().dataSource(URL_REPLICA, "sa", "").load().migrate();
+    }
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate primario = new JdbcTemplate(datasourcePrimario);
+        primario.update("DELETE FROM usuarios");
+        primario.update(INSERTAR, "En primario");
+        replica.update("DELETE FROM usuarios");
+        replica.update(INSERTAR, "En réplica");
+    }
+
+    @Test
+    void lasLecturasVanALaReplica() {
+        double antes = conexiones("replica");
+
+        assertThat(enPeticion(new MockHttpServletRequest(), () -> repository.findById(1L).map(Usuario::getNombre).orElseThrow()))
+                .isEqualTo("En réplica");
+        assertThat(conexiones("replica")).isGreaterThan(antes);
+    }
+
+    @Test
+    void quienEscribeLeeDelPrimarioYElRestoDeLaReplica() {
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        Usuario actualizado = enPeticion(new MockHttpServletRequest(), respuesta,
+                () -> usuarioService.updateUsuario(1L, new UsuarioCambios("Actualizado", null, null, null)).orElseThrow());
+
+        // La escritura va al primario y, en la misma petición, la relectura también
+        assertThat(actualizado.getNombre()).isEqualTo("Actualizado");
+        assertThat(new JdbcTemplate(datasourcePrimario).queryForObject("SELECT nombre FROM usuarios WHERE id = 1",
+                String.class)).isEqualTo("Actualizado");
+        assertThat(replica.queryForObject("SELECT nombre FROM usuarios WHERE id = 1", String.class))
+                .isEqualTo("En réplica");
+
+        // Otro cliente sigue leyendo de la réplica
+        assertThat(enPeticion(new MockHttpServletRequest(), () -> repository.findById(1L).map(Usuario::getNombre).orElseThrow()))
+                .isEqualTo("En réplica");
+
+        // El que escribió, con la cabecera o la cookie recibidas, lee del primario aunque vaya a otra instancia
+        String ultimaEscritura = respuesta.getHeader(EscriturasRecientes.CABECERA);
+        assertThat(ultimaEscritura).isNotNull();
+        MockHttpServletRequest conCabecera = new MockHttpServletRequest();
+        conCabecera.addHeader(EscriturasRecientes.CABECERA, ultimaEscritura);
+        assertThat(enPeticion(conCabecera, () -> repository.findById(1L).map(Usuario::getNombre).orElseThrow()))
+                .isEqualTo("Actualizado");
+        Cookie cookie = respuesta.getCookies()[0];
+        MockHttpServletRequest conCookie = new MockHttpServletRequest();
+        conCookie.setCookies(cookie);
+        assertThat(enPeticion(conCookie, () -> repository.findById(1L).map(Usuario::getNombre).orElseThrow()))
+                .isEqualTo("Actualizado");
+    }
+
+    @Test
+    void unaEscrituraAntiguaOFuturaNoDesviaLasLecturas() {
+        for (long desfase : new long[]{-60_000, 60_000}) {
+            MockHttpServletRequest peticion = new MockHttpServletRequest();
+            peticion.addHeader(EscriturasRecientes.CABECERA, Long.toString(System.currentTimeMillis() + desfase));
+
+            assertThat(enPeticion(peticion, () -> repository.findById(1L).map(Usuario::getNombre).orElseThrow()))
+                    .isEqualTo("En réplica");
+        }
+    }
+
+    private double conexiones(String destino) {
+        return meterRegistry.get("usuarios.datasource.conexiones").tag("destino", destino).counter().count();
+    }
+
+    private static <T> T enPeticion(MockHttpServletRequest peticion, Supplier<T> operacion) {
+        return enPeticion(peticion, new MockHttpServletResponse(), operacion);
+    }
+
+    private static <T> T enPeticion(MockHttpServletRequest peticion, MockHttpServletResponse respuesta,
+                                    Supplier<T> operacion) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(peticion, respuesta));
+        try {
+            return operacion.get();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.inventario.UsuariosService.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sin usuarios.internal.tokens, /internal/** se atiende como antes de existir el token de servicio
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+class AccesoInternoSinTokensTest {
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int puerto;
+
+    @Test
+    void internosSiguenAbiertosSinTokensConfigurados() throws Exception {
+        assertThat(get("/api/usuarios/internal/1")).isEqualTo(404);
+        assertThat(get("/api/usuarios/internal/changes?since=0")).isEqualTo(200);
+    }
+
+    private int get(String ruta) throws Exception {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta)).build();
+        return cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,61 @@
+package com.inventario.UsuariosService.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// /internal/** exige un token de servicio y actuator solo responde en el puerto de gestión
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "usuarios.internal.tokens=token-actual, token-anterior")
+@ActiveProfiles("h2")
+@AutoConfigureObservability(tracing = false)
+class AccesoInternoTest {
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int puerto;
+
+    @LocalManagementPort
+    private int puertoGestion;
+
+    @Test
+    void internosSinTokenValidoSeRechazan() throws Exception {
+        assertThat(get(puerto, "/api/usuarios/internal/1", null)).isEqualTo(403);
+        assertThat(get(puerto, "/api/usuarios/internal/changes?since=0", null)).isEqualTo(403);
+        assertThat(get(puerto, "/api/usuarios/internal/1", "otro-token")).isEqualTo(403);
+    }
+
+    @Test
+    void internosConCualquierTokenConfiguradoSeAtienden() throws Exception {
+        assertThat(get(puerto, "/api/usuarios/internal/1", "token-actual")).isEqualTo(404);
+        assertThat(get(puerto, "/api/usuarios/internal/1", "token-anterior")).isEqualTo(404);
+        assertThat(get(puerto, "/api/usuarios/internal/changes?since=0", "token-actual")).isEqualTo(200);
+    }
+
+    @Test
+    void prometheusSoloEnElPuertoDeGestion() throws Exception {
+        assertThat(puertoGestion).isNotEqualTo(puerto);
+        // Sin mapeo en el puerto de la aplicación (el 404 acaba en un /error no público)
+        assertThat(get(puerto, "/actuator/prometheus", null)).isNotEqualTo(200);
+        assertThat(get(puertoGestion, "/actuator/prometheus", null)).isEqualTo(200);
+    }
+
+    private int get(int puerto, String ruta, String token) throws Exception {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta));
+        if (token != null) {
+            peticion.header("X-Service-Token", token);
+        }
+        return cliente.send(peticion.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
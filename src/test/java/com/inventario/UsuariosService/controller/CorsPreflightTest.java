@@ -0,0 +1,43 @@
+package com.inventario.UsuariosService.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Preflight de navegador para los métodos de /api/usuarios/{id}, incluida la actualización parcial (PATCH)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+class CorsPreflightTest {
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int puerto;
+
+    @Test
+    void preflightAdmitePatchYPut() throws Exception {
+        for (String metodo : new String[]{"PATCH", "PUT"}) {
+            HttpResponse<Void> respuesta = preflight(metodo);
+            assertThat(respuesta.statusCode()).isEqualTo(200);
+            assertThat(respuesta.headers().firstValue("Access-Control-Allow-Methods")).get().asString().contains(metodo);
+        }
+    }
+
+    private HttpResponse<Void> preflight(String metodo) throws Exception {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/usuarios/1"))
+                .method("OPTIONS", HttpRequest.BodyPublishers.noBody())
+                .header("Origin", "http://localhost:3000")
+                .header("Access-Control-Request-Method", metodo)
+                .header("Access-Control-Request-Headers", "authorization,content-type")
+                .build();
+        return cliente.send(peticion, HttpResponse.BodyHandlers.discarding());
+    }
+}
@@ -0,0 +1,54 @@
+package com.inventario.UsuariosService.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// El limitador de /login usa la IP del cliente que envía el balanceador (loopback es un proxy de confianza)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "login.limite.ip.rafaga=2", "login.limite.ip.por-minuto=1"
+})
+@ActiveProfiles("h2")
+class LoginLimiteIpTest {
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int puerto;
+
+    @Test
+    void cadaClienteDetrasDelBalanceadorTieneSuLimite() throws Exception {
+        assertThat(login("203.0.113.1", "a1@x.com")).isEqualTo(401);
+        assertThat(login("203.0.113.1", "a2@x.com")).isEqualTo(401);
+        assertThat(login("203.0.113.1", "a3@x.com")).isEqualTo(429);
+
+        assertThat(login("203.0.113.2", "b1@x.com")).isEqualTo(401);
+    }
+
+    @Test
+    void unaIpFalsaAnadidaPorElClienteNoCambiaLaClave() throws Exception {
+        assertThat(login("203.0.113.7", "c1@x.com")).isEqualTo(401);
+        assertThat(login("203.0.113.7", "c2@x.com")).isEqualTo(401);
+
+        // El balanceador añade la IP real al final; la primera la ha escrito el cliente
+        assertThat(login("198.51.100.9, 203.0.113.7", "c3@x.com")).isEqualTo(429);
+    }
+
+    private int login(String reenviadoPara, String correo) throws Exception {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/usuarios/login"))
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", reenviadoPara)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"correo\":\"" + correo + "\",\"contrasena\":\"incorrecta\"}"))
+                .build();
+        return cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,69 @@
+package com.inventario.UsuariosService.filter;
+
+import com.inventario.UsuariosService.service.MonitorCarga;
+import com.inventario.UsuariosService.service.MonitorCarga.Prioridad;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CargaFilterTest {
+
+    private MonitorCarga monitor;
+    private CargaFilter filtro;
+
+    @BeforeEach
+    void setUp() {
+        monitor = mock(MonitorCarga.class);
+        filtro = new CargaFilter(monitor);
+    }
+
+    @Test
+    void clasificaLasRutasPorPrioridad() {
+        assertThat(CargaFilter.prioridad("POST", "/api/usuarios/login")).isEqualTo(Prioridad.ALTA);
+        assertThat(CargaFilter.prioridad("POST", "/api/usuarios/refresh")).isEqualTo(Prioridad.ALTA);
+        assertThat(CargaFilter.prioridad("GET", "/api/usuarios/internal/changes")).isEqualTo(Prioridad.ALTA);
+        assertThat(CargaFilter.prioridad("GET", "/actuator/health/readiness")).isEqualTo(Prioridad.ALTA);
+        assertThat(CargaFilter.prioridad("GET", "/api/usuarios")).isEqualTo(Prioridad.BAJA);
+        assertThat(CargaFilter.prioridad("GET", "/api/usuarios/search")).isEqualTo(Prioridad.BAJA);
+        assertThat(CargaFilter.prioridad("POST", "/api/usuarios/import")).isEqualTo(Prioridad.BAJA);
+        assertThat(CargaFilter.prioridad("POST", "/api/usuarios")).isEqualTo(Prioridad.NORMAL);
+        assertThat(CargaFilter.prioridad("GET", "/api/usuarios/7")).isEqualTo(Prioridad.NORMAL);
+    }
+
+    @Test
+    void rechazaCon503YRetryAfterSinLlegarALaCadena() throws Exception {
+        when(monitor.admite(Prioridad.BAJA)).thenReturn(false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filtro.doFilter(new MockHttpServletRequest("GET", "/api/usuarios"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        verify(chain, never()).doFilter(any(), any());
+        verify(monitor, never()).registrarLatencia(anyLong());
+    }
+
+    @Test
+    void mideLaLatenciaSoloDeLasPeticionesRepresentativas() throws Exception {
+        when(monitor.admite(any())).thenReturn(true);
+        FilterChain chain = mock(FilterChain.class);
+
+        filtro.doFilter(new MockHttpServletRequest("GET", "/api/usuarios/search"), new MockHttpServletResponse(), chain);
+        filtro.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(), chain);
+        verify(monitor, never()).registrarLatencia(anyLong());
+
+        filtro.doFilter(new MockHttpServletRequest("GET", "/api/usuarios/7"), new MockHttpServletResponse(), chain);
+        verify(monitor).registrarLatencia(anyLong());
+    }
+}
@@ -0,0 +1,32 @@
+package com.inventario.UsuariosService.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Guarda el SQL que genera Hibernate para poder pedir su plan con EXPLAIN
+public class ConsultasCapturadas implements StatementInspector {
+
+    private static final List<String> CONSULTAS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (CONSULTAS) {
+            CONSULTAS.add(sql);
+        }
+        return sql;
+    }
+
+    static void limpiar() {
+        synchronized (CONSULTAS) {
+            CONSULTAS.clear();
+        }
+    }
+
+    static String ultima() {
+        synchronized (CONSULTAS) {
+            return CONSULTAS.get(CONSULTAS.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.inventario.UsuariosService.repository;
+
+import com.inventario.UsuariosService.entity.RefreshToken;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+// Cada llamada al repositorio en su propia transacción, como en RefreshTokenService
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenRepositoryTest {
+
+    @Autowired
+    private RefreshTokenRepository repository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void insertarNoLeeAntesDeEscribir() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        repository.insertar(new RefreshToken("hash-1", 1L, "familia", System.currentTimeMillis() + 60_000, false));
+
+        assertThat(estadisticas.getEntityInsertCount()).isEqualTo(1);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(repository.findById("hash-1")).get().extracting(RefreshToken::getFamilia).isEqualTo("familia");
+    }
+}
@@ -0,0 +1,130 @@
+package com.inventario.UsuariosService.repository;
+
+import com.inventario.UsuariosService.dto.UsuarioResumen;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.inventario.UsuariosService.repository.ConsultasCapturadas")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+// Comprueba con EXPLAIN, sobre un conjunto generado, que las consultas de UsuarioRepository usan los índices
+// de db/migration (H2 en modo MySQL aplica las mismas migraciones de Flyway)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UsuarioRepositoryPlanTest {
+
+    private static final int USUARIOS = 20_000;
+
+    @Autowired
+    private UsuarioRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void generarDatos() {
+        if (repository.existsByIdNotNull()) {
+            return;
+        }
+        Timestamp ahora = new Timestamp(System.currentTimeMillis());
+        List<Object[]> filas = new ArrayList<>(USUARIOS);
+        for (int i = 0; i < USUARIOS; i++) {
+            filas.add(new Object[]{"Usuario " + i, "usuario" + i + "@empresa.com", i % 50 == 1 ? "ADMIN" : "USER",
+                    "hash", ahora, i % 10 != 0});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO usuarios (nombre, correo, rol, contrasena, fecha_registro, activo) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", filas);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void loginPorCorreoUsaLaClaveUnica() {
+        ConsultasCapturadas.limpiar();
+        assertThat(repository.findByCorreoAndActivoTrue("usuario42@empresa.com")).isPresent();
+
+        assertThat(plan(ConsultasCapturadas.ultima(), "usuario42@empresa.com"))
+                .contains("uk_usuarios_correo").contains("correo = 'usuario42@empresa.com'");
+    }
+
+    @Test
+    void listadoPaginadoConFiltrosUsaIndiceActivoRolId() {
+        ConsultasCapturadas.limpiar();
+        assertThat(repository.findResumenDespuesDe(0L, "ADMIN", true, PageRequest.ofSize(20))).hasSize(20);
+
+        assertThat(plan(ConsultasCapturadas.ultima(), 0L, "ADMIN", "ADMIN", true, true, 20))
+                .contains("idx_usuarios_activo_rol_id").contains("rol = 'ADMIN'");
+    }
+
+    @Test
+    void recorridoCompletoConFiltrosUsaIndiceActivoRolId() {
+        ConsultasCapturadas.limpiar();
+        Long recorridos = new TransactionTemplate(transactionManager).execute(estado -> {
+            try (Stream<UsuarioResumen> resumen = repository.streamResumen("ADMIN", true)) {
+                return resumen.count();
+            }
+        });
+        assertThat(recorridos).isEqualTo(USUARIOS / 50);
+
+        assertThat(plan(ConsultasCapturadas.ultima(), "ADMIN", "ADMIN", true, true))
+                .contains("idx_usuarios_activo_rol_id");
+    }
+
+    @Test
+    void correosActivosUsaIndiceActivoRolId() {
+        ConsultasCapturadas.limpiar();
+        assertThat(repository.findCorreosActivos()).hasSize(USUARIOS - USUARIOS / 10);
+
+        assertThat(plan(ConsultasCapturadas.ultima())).contains("idx_usuarios_activo_rol_id: activo = TRUE");
+    }
+
+    @Test
+    void busquedaSinIndiceEnMemoriaDevuelvePrimeroLosQueEmpiezanPorElTexto() {
+        List<UsuarioResumen> encontrados = repository.buscarResumen("%19%", "19%", "% 19%", null, null,
+                PageRequest.ofSize(5));
+
+        assertThat(encontrados).extracting(UsuarioResumen::nombre)
+                .containsExactly("Usuario 19", "Usuario 190", "Usuario 191", "Usuario 192", "Usuario 193");
+        assertThat(repository.buscarResumen("%19%", "19%", "% 19%", "ADMIN", true, PageRequest.ofSize(1000)))
+                .extracting(UsuarioResumen::nombre).contains("Usuario 1901", "Usuario 11951").allSatisfy(n ->
+                        assertThat(n).contains("19"));
+        // '!' escapa los comodines: "_" es literal y ningún correo lo contiene
+        assertThat(repository.buscarResumen("%!_%", "!_%", "% !_%", null, null, PageRequest.ofSize(5))).isEmpty();
+    }
+
+    // Connector/J envía por defecto los parámetros ya sustituidos (sin useServerPrepStmts), así que MySQL
+    // planifica con los valores y descarta los "? IS NULL" falsos; aquí se hace lo mismo para H2
+    private String plan(String sql, Object... parametros) {
+        StringBuilder conValores = new StringBuilder("EXPLAIN ");
+        int siguiente = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                Object valor = parametros[siguiente++];
+                conValores.append(valor instanceof String texto ? "'" + texto.replace("'", "''") + "'" : valor);
+            } else {
+                conValores.append(c);
+            }
+        }
+        assertThat(siguiente).isEqualTo(parametros.length);
+        return jdbcTemplate.queryForObject(conValores.toString(), String.class);
+    }
+}
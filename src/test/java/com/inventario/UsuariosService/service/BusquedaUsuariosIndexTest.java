@@ -0,0 +1,142 @@
+package com.inventario.UsuariosService.service;
+
+import com.inventario.UsuariosService.dto.UsuarioResumen;
+import com.inventario.UsuariosService.entity.Usuario;
+import com.inventario.UsuariosService.repository.UsuarioRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BusquedaUsuariosIndexTest {
+
+    private static final List<UsuarioResumen> USUARIOS = List.of(
+            resumen(1L, "María Álvarez", "malvarez@x.com", "USER", true),
+            resumen(2L, "Ana Pérez", "ana@x.com", "ADMIN", true),
+            resumen(3L, "Juliana Ruiz", "jruiz@x.com", "USER", true),
+            resumen(4L, "Ana Gómez", "agomez@x.com", "USER", false));
+
+    private UsuarioRepository repository;
+    private CambiosUsuarioService cambios;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UsuarioRepository.class);
+        cambios = mock(CambiosUsuarioService.class);
+        when(repository.streamResumen(null, null)).thenAnswer(invocacion -> USUARIOS.stream());
+        when(cambios.versionActual()).thenReturn(10L);
+        when(cambios.listar(anyLong(), anyInt())).thenReturn(List.of());
+    }
+
+    @Test
+    void devuelvePrimeroLosQueEmpiezanPorElTextoYAplicaLosFiltros() {
+        BusquedaUsuariosIndex index = indice(true, 100);
+        index.sincronizar();
+
+        assertThat(ids(index.buscar("ana", null, null, 10))).containsExactly(2L, 4L, 3L);
+        assertThat(ids(index.buscar("ÁLVAREZ", null, null, 10))).containsExactly(1L);
+        assertThat(ids(index.buscar("ana", "admin", null, 10))).containsExactly(2L);
+        assertThat(ids(index.buscar("ana", null, false, 10))).containsExactly(4L);
+        BusquedaUsuariosIndex.Resultado limitado = index.buscar("ana", null, null, 1);
+        assertThat(ids(limitado)).containsExactly(2L);
+        assertThat(limitado.truncado()).isTrue();
+        // Exactamente tantas coincidencias como el límite: no hay más que ofrecer
+        assertThat(index.buscar("ana", null, null, 3).truncado()).isFalse();
+        assertThat(index.buscar("ana", null, null, 2).truncado()).isTrue();
+    }
+
+    @Test
+    void reflejaLasEscriturasLocalesSinEsperarALaSincronizacion() {
+        BusquedaUsuariosIndex index = indice(true, 100);
+        index.sincronizar();
+
+        index.actualizar(new Usuario(3L, "Julia Ruiz", "jruiz@x.com", "USER", "hash", LocalDateTime.now(), true,
+                LocalDateTime.now()));
+        index.eliminar(2L);
+
+        assertThat(ids(index.buscar("ana", null, null, 10))).containsExactly(4L);
+        assertThat(ids(index.buscar("julia", null, null, 10))).containsExactly(3L);
+    }
+
+    @Test
+    void unaBusquedaConcurrenteConModificacionesNoDevuelveDosVecesElMismoUsuario() throws Exception {
+        BusquedaUsuariosIndex index = indice(true, 100);
+        index.sincronizar();
+        AtomicBoolean terminar = new AtomicBoolean();
+        Thread escritor = new Thread(() -> {
+            for (int i = 0; i < 50_000 && !terminar.get(); i++) {
+                index.actualizar(new Usuario(2L, "Ana Pérez " + i, "ana@x.com", "ADMIN", "hash", LocalDateTime.now(),
+                        true, LocalDateTime.now()));
+            }
+        });
+        escritor.start();
+        try {
+            long fin = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < fin) {
+                List<Long> ids = ids(index.buscar("ana", null, null, 10));
+                assertThat(ids).doesNotHaveDuplicates();
+            }
+        } finally {
+            terminar.set(true);
+            escritor.join();
+        }
+    }
+
+    @Test
+    void desactivadoNoCargaNadaYDejaLaBusquedaALaBaseDeDatos() {
+        BusquedaUsuariosIndex index = indice(false, 100);
+        index.sincronizar();
+
+        assertThat(index.cargado()).isFalse();
+        assertThat(index.buscar("ana", null, null, 10)).isNull();
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void seDescartaAlPasarDeMaxUsuarios() {
+        BusquedaUsuariosIndex alCargar = indice(true, 3);
+        alCargar.sincronizar();
+        alCargar.sincronizar();
+
+        assertThat(alCargar.cargado()).isFalse();
+        assertThat(alCargar.buscar("ana", null, null, 10)).isNull();
+
+        BusquedaUsuariosIndex alCrecer = indice(true, 4);
+        alCrecer.sincronizar();
+        assertThat(alCrecer.cargado()).isTrue();
+        alCrecer.actualizar(new Usuario(5L, "Ana Nueva", "nueva@x.com", "USER", "hash", LocalDateTime.now(), true,
+                LocalDateTime.now()));
+
+        assertThat(alCrecer.cargado()).isFalse();
+        when(repository.streamResumen(any(), any())).thenAnswer(invocacion -> Stream.of(USUARIOS.get(0)));
+        alCrecer.sincronizar();
+        assertThat(alCrecer.cargado()).isFalse();
+    }
+
+    private BusquedaUsuariosIndex indice(boolean habilitado, int maxUsuarios) {
+        return new BusquedaUsuariosIndex(repository, cambios, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), habilitado, maxUsuarios, 50_000);
+    }
+
+    private static List<Long> ids(BusquedaUsuariosIndex.Resultado resultado) {
+        return resultado.usuarios().stream().map(UsuarioResumen::id).toList();
+    }
+
+    private static UsuarioResumen resumen(Long id, String nombre, String correo, String rol, boolean activo) {
+        return new UsuarioResumen(id, nombre, correo, rol, LocalDateTime.of(2024, 1, 1, 0, 0), activo);
+    }
+}
@@ -0,0 +1,156 @@
+package com.inventario.UsuariosService.service;
+
+import com.inventario.UsuariosService.dto.CambioUsuario;
+import com.inventario.UsuariosService.service.CambiosUsuarioService.Operacion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(CambiosUsuarioService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CambiosUsuarioServiceTest {
+
+    @Autowired
+    private CambiosUsuarioService cambios;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void registrarExigeLaTransaccionDeLaEscritura() {
+        assertThatThrownBy(() -> cambios.registrar(Operacion.GUARDADO, 1L))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    @Test
+    void listaDesdeUnaVersionConElEstadoActualDeCadaUsuario() {
+        long ana = crearUsuario("Ana", "ana@x.com");
+        long luis = crearUsuario("Luis", "luis@x.com");
+        long borrado = crearUsuario("Borrado", "borrado@x.com");
+        long desde = cambios.versionActual();
+        enTransaccion(() -> cambios.registrar(Operacion.GUARDADO, List.of(ana, luis, borrado)));
+        jdbcTemplate.update("UPDATE usuarios SET nombre = 'Ana María' WHERE id = ?", ana);
+        jdbcTemplate.update("DELETE FROM usuarios WHERE id = ?", borrado);
+        enTransaccion(() -> cambios.registrar(Operacion.ELIMINADO, luis));
+
+        List<CambioUsuario> lista = cambios.listar(desde, 10);
+
+        assertThat(lista).extracting(CambioUsuario::version).containsExactly(desde + 1, desde + 2, desde + 3, desde + 4);
+        assertThat(lista).extracting(CambioUsuario::id).containsExactly(ana, luis, borrado, luis);
+        // Cada entrada lleva el estado actual; un usuario que ya no existe sale como ELIMINADO
+        assertThat(lista.get(0).nombre()).isEqualTo("Ana María");
+        assertThat(lista).extracting(CambioUsuario::operacion)
+                .containsExactly("GUARDADO", "GUARDADO", "ELIMINADO", "ELIMINADO");
+        assertThat(lista.get(2).correo()).isNull();
+        assertThat(cambios.versionActual()).isEqualTo(desde + 4);
+
+        List<CambioUsuario> recorridos = new ArrayList<>();
+        cambios.recorrer(desde + 1, 2, recorridos::add);
+        assertThat(recorridos).extracting(CambioUsuario::version).containsExactly(desde + 2, desde + 3);
+    }
+
+    @Test
+    void unaEscrituraDeshechaNoDejaEntradas() {
+        long ana = crearUsuario("Ana", "ana.rollback@x.com");
+        long desde = cambios.versionActual();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            cambios.registrar(Operacion.GUARDADO, ana);
+            estado.setRollbackOnly();
+        });
+
+        assertThat(cambios.versionActual()).isEqualTo(desde);
+        assertThat(cambios.listar(desde, 10)).isEmpty();
+    }
+
+    @Test
+    void lasVersionesSeAsignanEnOrdenDeCommit() throws Exception {
+        long ana = crearUsuario("Ana", "ana.orden@x.com");
+        long luis = crearUsuario("Luis", "luis.orden@x.com");
+        long desde = cambios.versionActual();
+        CountDownLatch reservada = new CountDownLatch(1);
+        CountDownLatch confirmar = new CountDownLatch(1);
+
+        CompletableFuture<Void> primera = CompletableFuture.runAsync(() -> enTransaccion(() -> {
+            cambios.registrar(Operacion.GUARDADO, ana);
+            reservada.countDown();
+            esperar(confirmar);
+        }));
+        esperar(reservada);
+        CompletableFuture<Void> segunda = CompletableFuture.runAsync(() ->
+                enTransaccion(() -> cambios.registrar(Operacion.GUARDADO, luis)));
+
+        // La segunda espera al bloqueo de la fila de versiones; un consumidor aún no ve nada
+        Thread.sleep(200);
+        assertThat(segunda).isNotDone();
+        assertThat(cambios.listar(desde, 10)).isEmpty();
+        confirmar.countDown();
+        primera.get(5, TimeUnit.SECONDS);
+        segunda.get(5, TimeUnit.SECONDS);
+
+        assertThat(cambios.listar(desde, 10)).extracting(CambioUsuario::id).containsExactly(ana, luis);
+    }
+
+    @Test
+    void compactarBorraSoloLasEntradasAntiguasConOtraPosterior() {
+        long ana = crearUsuario("Ana", "ana.compactar@x.com");
+        long luis = crearUsuario("Luis", "luis.compactar@x.com");
+        long pedro = crearUsuario("Pedro", "pedro.compactar@x.com");
+        long desde = cambios.versionActual();
+        for (long id : new long[]{ana, ana, luis, pedro, pedro}) {
+            enTransaccion(() -> cambios.registrar(Operacion.GUARDADO, id));
+        }
+        // Fuera de la retención: la primera de Ana (superada) y la única de Luis
+        jdbcTemplate.update("UPDATE cambios_usuarios SET fecha = 0 WHERE version IN (?, ?)", desde + 1, desde + 3);
+
+        cambios.compactar();
+
+        // La de Luis es la última suya y la primera de Pedro aún está dentro de la retención
+        assertThat(cambios.listar(desde, 10)).extracting(CambioUsuario::version)
+                .containsExactly(desde + 2, desde + 3, desde + 4, desde + 5);
+    }
+
+    private long crearUsuario(String nombre, String correo) {
+        jdbcTemplate.update("INSERT INTO usuarios (nombre, correo, rol, contrasena, fecha_registro, activo) "
+                + "VALUES (?, ?, 'USER', 'hash', ?, TRUE)", nombre, correo, new Timestamp(System.currentTimeMillis()));
+        return jdbcTemplate.queryForObject("SELECT id FROM usuarios WHERE correo = ?", Long.class, correo);
+    }
+
+    private void enTransaccion(Runnable escritura) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> escritura.run());
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
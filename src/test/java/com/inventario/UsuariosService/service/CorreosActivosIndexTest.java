@@ -0,0 +1,76 @@
+package com.inventario.UsuariosService.service;
+
+import com.inventario.UsuariosService.dto.CambioUsuario;
+import com.inventario.UsuariosService.repository.UsuarioRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CorreosActivosIndexTest {
+
+    private UsuarioRepository repository;
+    private CambiosUsuarioService cambios;
+    private CorreosActivosIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UsuarioRepository.class);
+        cambios = mock(CambiosUsuarioService.class);
+        when(repository.findCorreosActivos()).thenReturn(List.of("Ana@x.com"));
+        when(cambios.versionActual()).thenReturn(10L);
+        when(cambios.listar(anyLong(), anyInt())).thenReturn(List.of());
+        index = new CorreosActivosIndex(repository, cambios, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void sinCargarNoDescartaNada() {
+        assertThat(index.puedeExistir("nadie@x.com")).isTrue();
+    }
+
+    @Test
+    void descartaCorreosDesconocidosSinDistinguirMayusculas() {
+        index.recargar();
+
+        assertThat(index.puedeExistir("ana@X.com")).isTrue();
+        assertThat(index.puedeExistir("nadie@x.com")).isFalse();
+        assertThat(index.puedeExistir(null)).isFalse();
+    }
+
+    @Test
+    void aplicaAltasYBajasDeOtrasInstanciasDesdeElRegistroDeCambios() {
+        index.recargar();
+        when(cambios.listar(eq(10L), anyInt())).thenReturn(List.of(
+                cambio(11, 5L, "nuevo@x.com", true),
+                cambio(12, 1L, "ana@x.com", false)));
+
+        index.sincronizar();
+
+        assertThat(index.puedeExistir("nuevo@x.com")).isTrue();
+        assertThat(index.puedeExistir("ana@x.com")).isFalse();
+    }
+
+    @Test
+    void continuaDesdeLaUltimaVersionAplicada() {
+        index.recargar();
+        when(cambios.listar(eq(10L), anyInt())).thenReturn(List.of(cambio(11, 5L, "nuevo@x.com", true)));
+        index.sincronizar();
+        when(cambios.listar(eq(11L), anyInt())).thenReturn(List.of(cambio(12, 5L, "nuevo@x.com", false)));
+
+        index.sincronizar();
+
+        assertThat(index.puedeExistir("nuevo@x.com")).isFalse();
+    }
+
+    private static CambioUsuario cambio(long version, Long id, String correo, boolean activo) {
+        return new CambioUsuario(version, id, "GUARDADO", "Nombre", correo, "USER", null, activo);
+    }
+}
@@ -0,0 +1,46 @@
+package com.inventario.UsuariosService.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FallosLoginRegistroTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void bloqueaAlLlegarAlMaximoHastaQueCaducaLaVentana() {
+        FallosLoginRegistro registro = new FallosLoginRegistro(registry, 900, 1000, 3);
+        registro.registrarFallo("ana@x.com");
+        registro.registrarFallo("Ana@X.com");
+        assertThat(registro.esperaMillis("ana@x.com")).isZero();
+
+        registro.registrarFallo("ana@x.com");
+
+        assertThat(registro.esperaMillis("ANA@x.com")).isBetween(1L, 900_000L);
+        assertThat(registro.esperaMillis("otra@x.com")).isZero();
+        assertThat(registry.get("login.fallos.bloqueos").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void unLoginCorrectoReiniciaElContador() {
+        FallosLoginRegistro registro = new FallosLoginRegistro(registry, 900, 1000, 2);
+        registro.registrarFallo("ana@x.com");
+        registro.reiniciar("ana@x.com");
+        registro.registrarFallo("ana@x.com");
+
+        assertThat(registro.getFallos("ana@x.com")).isEqualTo(1);
+        assertThat(registro.esperaMillis("ana@x.com")).isZero();
+    }
+
+    @Test
+    void conMaxFallosACeroNuncaBloquea() {
+        FallosLoginRegistro registro = new FallosLoginRegistro(registry, 900, 1000, 0);
+        for (int i = 0; i < 20; i++) {
+            registro.registrarFallo("ana@x.com");
+        }
+
+        assertThat(registro.esperaMillis("ana@x.com")).isZero();
+    }
+}
@@ -0,0 +1,49 @@
+package com.inventario.UsuariosService.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LimitadorLoginTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // Ráfaga de 3 por IP y 2 por correo; reposición de 1 por minuto
+    private final LimitadorLogin limitador = new LimitadorLogin(registry, 3, 1, 2, 1, 1000);
+
+    @Test
+    void admiteLaRafagaYDespuesDevuelveLaEspera() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(limitador.esperaMillis("203.0.113.1", null)).isZero();
+        }
+
+        assertThat(limitador.esperaMillis("203.0.113.1", null)).isBetween(1L, 60_000L);
+        assertThat(registry.get("login.limite.rechazos").tag("clave", "ip").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void cadaIpTieneSuCubo() {
+        for (int i = 0; i < 3; i++) {
+            limitador.esperaMillis("203.0.113.1", null);
+        }
+
+        assertThat(limitador.esperaMillis("203.0.113.1", null)).isPositive();
+        assertThat(limitador.esperaMillis("203.0.113.2", null)).isZero();
+    }
+
+    @Test
+    void limitaPorCorreoDesdeIpsDistintasSinDistinguirMayusculas() {
+        assertThat(limitador.esperaMillis("203.0.113.1", "ana@x.com")).isZero();
+        assertThat(limitador.esperaMillis("203.0.113.2", "Ana@X.com")).isZero();
+
+        assertThat(limitador.esperaMillis("203.0.113.3", "ana@x.com")).isPositive();
+        assertThat(limitador.esperaMillis("203.0.113.3", "otra@x.com")).isZero();
+    }
+
+    @Test
+    void sinIpNoLimita() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(limitador.esperaMillis(null, null)).isZero();
+        }
+    }
+}
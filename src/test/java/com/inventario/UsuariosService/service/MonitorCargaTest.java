@@ -0,0 +1,129 @@
+package com.inventario.UsuariosService.service;
+
+import com.inventario.UsuariosService.service.MonitorCarga.Prioridad;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MonitorCargaTest {
+
+    private SimpleMeterRegistry registry;
+    private PasswordHashingService hashing;
+    private ApplicationEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        hashing = mock(PasswordHashingService.class);
+        publisher = mock(ApplicationEventPublisher.class);
+    }
+
+    @Test
+    void conCargaElevadaRechazaSoloLosListadosDeAdministracion() {
+        MonitorCarga monitor = monitor(true, 5000);
+        when(hashing.ocupacion()).thenReturn(0.8);
+
+        monitor.evaluar();
+
+        assertThat(monitor.detalle()).containsEntry("nivel", "ELEVADO");
+        assertThat(monitor.admite(Prioridad.BAJA)).isFalse();
+        assertThat(monitor.admite(Prioridad.NORMAL)).isTrue();
+        assertThat(monitor.admite(Prioridad.ALTA)).isTrue();
+        assertThat(monitor.admiteTrafico()).isTrue();
+        assertThat(registry.get("carga.rechazos").tag("prioridad", "baja").counter().count()).isEqualTo(1);
+        verify(publisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void saturadaRechazaTambienLasNormalesYSaleDelBalanceador() {
+        MonitorCarga monitor = monitor(true, 5000);
+        when(hashing.ocupacion()).thenReturn(1.0);
+        for (int i = 0; i < 50; i++) {
+            monitor.registrarLatencia(TimeUnit.SECONDS.toNanos(1));
+        }
+
+        monitor.evaluar();
+
+        assertThat(monitor.detalle()).containsEntry("nivel", "SATURADO");
+        assertThat(monitor.admite(Prioridad.NORMAL)).isFalse();
+        assertThat(monitor.admite(Prioridad.ALTA)).isTrue();
+        assertThat(monitor.admiteTrafico()).isFalse();
+        assertThat(readiness()).isEqualTo(ReadinessState.REFUSING_TRAFFIC);
+    }
+
+    @Test
+    void usaElPeorPoolJdbc() {
+        MonitorCarga monitor = monitor(true, 5000);
+        pool("primario", 0, 10);
+        pool("replica", 6, 10);
+
+        monitor.evaluar();
+
+        assertThat(monitor.detalle()).containsEntry("nivel", "ELEVADO").containsEntry("pendientesJdbc", 0.6);
+    }
+
+    @Test
+    void bajaDeUnoEnUnoSoloPorDebajoDelUmbralDeSalida() {
+        MonitorCarga monitor = monitor(true, 0);
+        when(hashing.ocupacion()).thenReturn(1.2);
+        monitor.evaluar();
+        assertThat(monitor.detalle()).containsEntry("nivel", "SATURADO");
+
+        // Carga 0,9: por debajo de ELEVADO pero no de su umbral de salida (1 x 0,7)
+        when(hashing.ocupacion()).thenReturn(0.675);
+        for (int i = 0; i < 5; i++) {
+            monitor.evaluar();
+        }
+        assertThat(monitor.detalle()).containsEntry("nivel", "ELEVADO");
+        assertThat(readiness()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+
+        when(hashing.ocupacion()).thenReturn(0.0);
+        monitor.evaluar();
+        assertThat(monitor.detalle()).containsEntry("nivel", "ELEVADO");
+        monitor.evaluar();
+        assertThat(monitor.detalle()).containsEntry("nivel", "NORMAL");
+    }
+
+    @Test
+    void conElRechazoDesactivadoAdmiteTodo() {
+        MonitorCarga monitor = monitor(false, 5000);
+        when(hashing.ocupacion()).thenReturn(1.0);
+
+        monitor.evaluar();
+
+        assertThat(monitor.admite(Prioridad.BAJA)).isTrue();
+        assertThat(monitor.admite(Prioridad.NORMAL)).isTrue();
+    }
+
+    private MonitorCarga monitor(boolean rechazoActivo, long permanenciaMillis) {
+        return new MonitorCarga(registry, hashing, publisher, rechazoActivo, 0.5, 0.75, 500, 1.5, 0.7,
+                permanenciaMillis);
+    }
+
+    private void pool(String nombre, double pendientes, double maximo) {
+        Gauge.builder("hikaricp.connections.pending", () -> pendientes).tag("pool", nombre).register(registry);
+        Gauge.builder("hikaricp.connections.max", () -> maximo).tag("pool", nombre).register(registry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ReadinessState readiness() {
+        ArgumentCaptor<AvailabilityChangeEvent<ReadinessState>> evento = ArgumentCaptor.forClass(AvailabilityChangeEvent.class);
+        verify(publisher, atLeastOnce()).publishEvent(evento.capture());
+        return evento.getValue().getState();
+    }
+}
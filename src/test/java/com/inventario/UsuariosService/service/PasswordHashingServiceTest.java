@@ -0,0 +1,114 @@
+package com.inventario.UsuariosService.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.MessageDigestPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashingServiceTest {
+
+    // encode lento (como un BCrypt real), matches inmediato
+    private static final PasswordEncoder LENTO = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals("hash:" + rawPassword);
+        }
+    };
+
+    private PasswordHashingService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void unaImportacionNoDejaSinHilosAlLogin() throws Exception {
+        // 2 hilos de login, 1 de importación, 200 ms de espera máxima por login
+        service = new PasswordHashingService(LENTO, new SimpleMeterRegistry(), 2, 4, 200, 1, 1, 4);
+        CompletableFuture<List<String>> importacion = CompletableFuture.supplyAsync(
+                () -> service.encodeLote(Collections.nCopies(40, "clave")));
+        Thread.sleep(100);
+
+        assertThat(importacion).isNotDone();
+        for (int i = 0; i < 10; i++) {
+            assertThat(service.matches("clave", "hash:clave")).isTrue();
+        }
+        assertThat(service.ocupacion()).isLessThan(1.0);
+        assertThat(importacion.get(10, TimeUnit.SECONDS)).hasSize(40).containsOnly("hash:clave");
+    }
+
+    @Test
+    void unHashBCryptDeCosteAntiguoTardaLoMismoQueUnoActual() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(10);
+        service = new PasswordHashingService(bcrypt, new SimpleMeterRegistry(), 1, 4, 5_000, 1, 1, 4);
+        String actual = bcrypt.encode("clave");
+        String antiguo = new BCryptPasswordEncoder(5).encode("clave");
+
+        assertThat(service.matches("clave", antiguo)).isTrue();
+        assertThat(service.matches("otra", antiguo)).isFalse();
+        assertThat(proporcion(() -> service.matches("otra", antiguo), () -> service.matches("otra", actual)))
+                .isBetween(0.8, 1.25);
+        assertThat(proporcion(() -> service.matchesFicticio("otra"), () -> service.matches("otra", actual)))
+                .isBetween(0.8, 1.25);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    void unHashDeOtroAlgoritmoTardaLoMismoQueUnoActual() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(10);
+        MessageDigestPasswordEncoder sha256 = new MessageDigestPasswordEncoder("SHA-256");
+        PasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt, "sha256", sha256));
+        service = new PasswordHashingService(encoder, new SimpleMeterRegistry(), 1, 4, 5_000, 1, 1, 4);
+        String actual = encoder.encode("clave");
+        String antiguo = "{sha256}" + sha256.encode("clave");
+        for (int i = 0; i < 20; i++) {
+            service.matches("otra", actual);
+        }
+
+        assertThat(service.matches("clave", antiguo)).isTrue();
+        assertThat(proporcion(() -> service.matches("otra", antiguo), () -> service.matches("otra", actual)))
+                .isBetween(0.8, 1.25);
+    }
+
+    // Mediana de tiempos de la primera operación dividida entre la de la segunda, alternándolas
+    private static double proporcion(Runnable primera, Runnable segunda) {
+        long[] a = new long[9];
+        long[] b = new long[9];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = medir(primera);
+            b[i] = medir(segunda);
+        }
+        Arrays.sort(a);
+        Arrays.sort(b);
+        return (double) a[a.length / 2] / b[b.length / 2];
+    }
+
+    private static long medir(Runnable operacion) {
+        long inicio = System.nanoTime();
+        operacion.run();
+        return System.nanoTime() - inicio;
+    }
+}
@@ -0,0 +1,84 @@
+package com.inventario.UsuariosService.service;
+
+import com.inventario.UsuariosService.entity.RevocacionToken;
+import com.inventario.UsuariosService.repository.RevocacionTokenRepository;
+import com.inventario.UsuariosService.util.JwtClaims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RevocacionTokenServiceTest {
+
+    private final Map<String, RevocacionToken> tabla = new ConcurrentHashMap<>();
+    private RevocacionTokenRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RevocacionTokenRepository.class);
+        when(repository.save(any())).thenAnswer(i -> {
+            RevocacionToken r = i.getArgument(0);
+            tabla.put(r.getClave(), r);
+            return r;
+        });
+        when(repository.findById(anyString())).thenAnswer(i -> Optional.ofNullable(tabla.get(i.<String>getArgument(0))));
+    }
+
+    @Test
+    void elCorteDeUsuarioComparaEnMilisegundos() {
+        RevocacionTokenService service = new RevocacionTokenService(repository, new SimpleMeterRegistry(), 900, 1000, 30_000);
+        long antes = System.currentTimeMillis();
+        service.revocarTokensDeUsuario("Ana@x.com");
+        long corte = tabla.get("usuario:ana@x.com").getRevocadoEn();
+
+        assertThat(service.isRevocado(token("ana@x.com", "a", antes))).isTrue();
+        assertThat(service.isRevocado(token("ana@x.com", "b", corte))).isTrue();
+        // Emitido un milisegundo después del corte (mismo segundo): válido
+        assertThat(service.isRevocado(token("ana@x.com", "c", corte + 1))).isFalse();
+        assertThat(service.isRevocado(token("otro@x.com", "d", antes))).isFalse();
+    }
+
+    @Test
+    void sinDesbordarNoConsultaLaTabla() {
+        RevocacionTokenService service = new RevocacionTokenService(repository, new SimpleMeterRegistry(), 900, 1000, 30_000);
+
+        assertThat(service.isRevocado(token("ana@x.com", "a", 0))).isFalse();
+        verify(repository, never()).findById(anyString());
+    }
+
+    @Test
+    void unCorteDescartadoPorTamanoSigueRevocandoSusTokens() {
+        RevocacionTokenService service = new RevocacionTokenService(repository, new SimpleMeterRegistry(), 900, 2, 30_000);
+        long antes = System.currentTimeMillis();
+        for (int i = 0; i < 50; i++) {
+            service.revocarTokensDeUsuario("u" + i + "@x.com");
+        }
+
+        // Caffeine descarta por tamaño en su mantenimiento asíncrono: se comprueba hasta que termine
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            for (int i = 0; i < 50; i++) {
+                assertThat(service.isRevocado(token("u" + i + "@x.com", "t" + i, antes))).as("u%d", i).isTrue();
+            }
+            verify(repository, atLeastOnce()).findById(anyString());
+        });
+        assertThat(service.isRevocado(token("nadie@x.com", "x", antes))).isFalse();
+    }
+
+    private static JwtClaims token(String correo, String jti, long emitidoEn) {
+        return new JwtClaims(correo, "Nombre", "USER", jti, emitidoEn, System.currentTimeMillis() + 60_000);
+    }
+}
@@ -0,0 +1,70 @@
+package com.inventario.UsuariosService.service;
+
+import com.inventario.UsuariosService.entity.Usuario;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsuarioCacheTest {
+
+    private final UsuarioCache cache = new UsuarioCache(new SimpleMeterRegistry(), 100, 60);
+
+    @Test
+    void unaCargaQueCoincideConUnaInvalidacionNoSeQuedaEnCache() {
+        AtomicInteger cargas = new AtomicInteger();
+        // La escritura concurrente confirma e invalida mientras la lectura aún tiene la fila anterior
+        cache.getPorId(1L, id -> {
+            cargas.incrementAndGet();
+            cache.invalidar(1L);
+            return Optional.of(usuario(1L, "Ana"));
+        });
+
+        Optional<Usuario> releido = cache.getPorId(1L, id -> {
+            cargas.incrementAndGet();
+            return Optional.of(usuario(1L, "Ana María"));
+        });
+
+        assertThat(cargas).hasValue(2);
+        assertThat(releido).map(Usuario::getNombre).contains("Ana María");
+        assertThat(cache.getPorId(1L, id -> Optional.empty())).map(Usuario::getNombre).contains("Ana María");
+    }
+
+    @Test
+    void laInvalidacionDeOtroUsuarioNoImpideCachear() {
+        cache.getPorId(1L, id -> {
+            cache.invalidar(2L);
+            return Optional.of(usuario(1L, "Ana"));
+        });
+
+        assertThat(cache.getPorId(1L, id -> Optional.empty())).map(Usuario::getNombre).contains("Ana");
+    }
+
+    @Test
+    void tambienAplicaALasCargasPorCorreoYEnBloque() {
+        cache.getActivoPorCorreo("ana@x.com", correo -> {
+            cache.invalidar(1L);
+            return Optional.of(usuario(1L, "Ana"));
+        });
+        cache.getTodosPorId(List.of(3L), ids -> {
+            cache.invalidar(3L);
+            return List.of(usuario(3L, "Luis"));
+        });
+
+        assertThat(cache.getPorId(1L, id -> Optional.empty())).isEmpty();
+        assertThat(cache.getTodosPorId(List.of(3L), ids -> List.of())).isEmpty();
+        assertThat(cache.getTodosPorCorreo(Set.of("ana@x.com"), correos -> List.of())).isEmpty();
+    }
+
+    private static Usuario usuario(Long id, String nombre) {
+        LocalDateTime fecha = LocalDateTime.of(2024, 1, 1, 0, 0);
+        String correo = id == 1L ? "ana@x.com" : "u" + id + "@x.com";
+        return new Usuario(id, nombre, correo, "USER", "hash", fecha, true, fecha);
+    }
+}
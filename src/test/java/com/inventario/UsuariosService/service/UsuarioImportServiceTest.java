@@ -0,0 +1,36 @@
+package com.inventario.UsuariosService.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsuarioImportServiceTest {
+
+    @Test
+    void separaCamposSinComillas() {
+        assertThat(UsuarioImportService.camposCsv("Ana,ana@x.com,USER,secreto"))
+                .containsExactly("Ana", "ana@x.com", "USER", "secreto");
+    }
+
+    @Test
+    void conservaComasYComillasDentroDeCamposEntreComillas() {
+        assertThat(UsuarioImportService.camposCsv("\"Pérez, Ana\",ana@x.com,USER,\"a,b\"\"c\""))
+                .containsExactly("Pérez, Ana", "ana@x.com", "USER", "a,b\"c");
+    }
+
+    @Test
+    void conservaCamposVacios() {
+        assertThat(UsuarioImportService.camposCsv("Ana,,USER,\"\"")).containsExactly("Ana", "", "USER", "");
+    }
+
+    @Test
+    void admiteSaltosDeLineaEntreComillas() {
+        assertThat(UsuarioImportService.camposCsv("Ana,ana@x.com,USER,\"linea1\nlinea2\""))
+                .containsExactly("Ana", "ana@x.com", "USER", "linea1\nlinea2");
+    }
+
+    @Test
+    void devuelveNullConComillasSinCerrar() {
+        assertThat(UsuarioImportService.camposCsv("Ana,ana@x.com,USER,\"sin cerrar")).isNull();
+    }
+}
@@ -0,0 +1,85 @@
+package com.inventario.UsuariosService.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.UsuariosService.dto.UsuarioCambios;
+import com.inventario.UsuariosService.dto.UsuarioResumen;
+import com.inventario.UsuariosService.entity.Usuario;
+import com.inventario.UsuariosService.repository.UsuarioRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UsuarioServiceTest {
+
+    private UsuarioRepository repository;
+    private TransactionTemplate transaccion;
+    private BusquedaUsuariosIndex busqueda;
+    private UsuarioService service;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        repository = mock(UsuarioRepository.class);
+        transaccion = mock(TransactionTemplate.class);
+        busqueda = mock(BusquedaUsuariosIndex.class);
+        service = new UsuarioService(repository, mock(CorreosActivosIndex.class),
+                new UsuarioCache(registry, 100, 60),
+                new ProyeccionInternaCache(new ObjectMapper().findAndRegisterModules(), registry, 100, 60),
+                mock(RevocacionTokenService.class), mock(RefreshTokenService.class), mock(AuditoriaService.class),
+                mock(EscriturasRecientes.class), mock(CambiosUsuarioService.class), busqueda,
+                transaccion);
+    }
+
+    @Test
+    void updateUsuarioNoDejaEnCacheLaFilaLeidaDuranteLaTransaccion() {
+        Usuario anterior = usuario("Ana");
+        Usuario nuevo = usuario("Ana María");
+        when(repository.findById(1L)).thenReturn(Optional.of(anterior));
+        when(repository.actualizarParcial(eq(1L), eq("Ana María"), isNull(), isNull(), isNull(), notNull())).thenReturn(1);
+        // Otra petición lee el usuario antes del commit y cachea la fila anterior
+        when(transaccion.execute(any())).thenAnswer(invocacion -> {
+            Object filas = invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+            assertThat(service.getUsuarioById(1L)).get().extracting(Usuario::getNombre).isEqualTo("Ana");
+            when(repository.findById(1L)).thenReturn(Optional.of(nuevo));
+            return filas;
+        });
+
+        Optional<Usuario> actualizado = service.updateUsuario(1L, new UsuarioCambios("Ana María", null, null, null));
+
+        assertThat(actualizado).get().extracting(Usuario::getNombre).isEqualTo("Ana María");
+        assertThat(service.getUsuarioById(1L)).get().extracting(Usuario::getNombre).isEqualTo("Ana María");
+    }
+
+    @Test
+    void sinIndiceDeBusquedaConsultaLaBaseDeDatosConLosComodinesEscapados() {
+        List<UsuarioResumen> filas = List.of(
+                new UsuarioResumen(1L, "Ana_50%", "ana@x.com", "ADMIN", LocalDateTime.now(), true),
+                new UsuarioResumen(2L, "Ana_50% B", "anab@x.com", "ADMIN", LocalDateTime.now(), true));
+        when(repository.buscarResumen("%ana!_50!%%", "ana!_50!%%", "% ana!_50!%%", "ADMIN", true,
+                PageRequest.of(0, 2))).thenReturn(filas);
+
+        BusquedaUsuariosIndex.Resultado resultado = service.buscar(" Ana_50% ", "admin", true, 1);
+
+        assertThat(resultado.usuarios()).extracting(UsuarioResumen::id).containsExactly(1L);
+        assertThat(resultado.truncado()).isTrue();
+    }
+
+    private static Usuario usuario(String nombre) {
+        return new Usuario(1L, nombre, "ana@x.com", "USER", "hash", LocalDateTime.now(), true, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,38 @@
+package com.inventario.UsuariosService.util;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "clave_de_test_suficientemente_larga_para_hs512_que_necesita_64_bytes_o_mas_x";
+
+    private final JwtUtil jwtUtil = new JwtUtil(new JwtKeyProvider("HS512", SECRET, "", "", "", ""),
+            new SimpleMeterRegistry(), 900, 100);
+
+    @Test
+    void conservaElInstanteDeEmisionEnMilisegundos() {
+        long antes = System.currentTimeMillis();
+        JwtClaims claims = jwtUtil.extractClaims(jwtUtil.generateToken("ana@x.com", "Ana", "USER"));
+        long despues = System.currentTimeMillis();
+
+        assertThat(claims.emitidoEnMillis()).isBetween(antes, despues);
+        assertThat(claims.correo()).isEqualTo("ana@x.com");
+        assertThat(claims.rol()).isEqualTo("USER");
+    }
+
+    @Test
+    void reutilizaLosClaimsDelMismoTokenYVerificaLosDemas() {
+        String token = jwtUtil.generateToken("ana@x.com", "Ana", "USER");
+        JwtClaims primera = jwtUtil.extractClaims(token);
+
+        // Otra instancia de String con el mismo contenido, como llega en cada petición
+        assertThat(jwtUtil.extractClaims(new String(token))).isSameAs(primera);
+        String alterado = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertThatThrownBy(() -> jwtUtil.extractClaims(alterado)).isInstanceOf(JwtException.class);
+    }
+}